@@ -3,8 +3,10 @@ package com.example.userservice;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+//Пул R2DBC нужен только реактивному стеку, он создаётся в ReactiveStackConfig
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class Main implements CommandLineRunner {
     public static void main(String[] args) { SpringApplication.run(Main.class, args); }
 
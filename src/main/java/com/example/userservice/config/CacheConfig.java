@@ -0,0 +1,67 @@
+package com.example.userservice.config;
+
+import com.example.userservice.dto.UserResponseDTO;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String USERS_CACHE = "users";
+    //Нормализованные email и имя -> id пользователя; сами данные берутся из USERS_CACHE
+    public static final String USER_IDS_BY_EMAIL_CACHE = "userIdsByEmail";
+    public static final String USER_IDS_BY_NAME_CACHE = "userIdsByName";
+
+    //Кэш ограничен по размеру и по времени жизни записи; recordStats() нужен для метрик hit/miss в actuator.
+    //Если есть бин SharedCacheTier, USERS_CACHE становится двухуровневым. Кэши по email и имени остаются
+    //локальными: устаревшее сопоставление с id обнаруживается при чтении пользователя
+    @Bean
+    public CacheManager cacheManager(@Value("${users.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${users.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                                     @Value("${users.cache.shared.expire-after-write:1h}")
+                                     Duration sharedExpireAfterWrite,
+                                     @Value("${users.cache.consistency:near}") TwoTierCache.Consistency consistency,
+                                     ObjectProvider<SharedCacheTier> sharedCacheTier) {
+        SharedCacheTier shared = sharedCacheTier.getIfAvailable();
+        if (shared == null && consistency == TwoTierCache.Consistency.SHARED) {
+            throw new IllegalStateException("users.cache.consistency=shared requires a SharedCacheTier bean");
+        }
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name,
+                                               com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                CaffeineCache near = (CaffeineCache) super.adaptCaffeineCache(name, cache);
+                if (shared == null || !USERS_CACHE.equals(name)) {
+                    return near;
+                }
+                return new TwoTierCache(near, shared, UserResponseDTO.class, sharedExpireAfterWrite, consistency);
+            }
+        };
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        cacheManager.setCacheNames(List.of(USERS_CACHE, USER_IDS_BY_EMAIL_CACHE, USER_IDS_BY_NAME_CACHE));
+        return cacheManager;
+    }
+
+    //Метрики cache.gets и т.п. для двухуровневого кэша публикуются по ближнему уровню
+    @Bean
+    public CacheMeterBinderProvider<TwoTierCache> twoTierCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(cache.getNear().getNativeCache(), cache.getName(), tags);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.userservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.ResolvableType;
+
+import java.lang.reflect.Type;
+
+//Таймеры сериализации и разбора тел HTTP-запросов, общие для конвертеров JSON и CBOR
+final class HttpCodecTimers {
+    private HttpCodecTimers() {
+    }
+
+    static Timer timer(MeterRegistry meterRegistry, String name, String direction, Type type) {
+        return Timer.builder(name)
+                .tag("direction", direction)
+                .tag("type", ResolvableType.forType(type).resolve(Object.class).getSimpleName())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.userservice.config;
+
+import com.example.userservice.repository.InMemoryUserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+//Хранение пользователей в памяти (users.storage=memory) для тестов и пограничных узлов: UserService
+//и UserBatchWriter работают с InMemoryUserRepository вместо JPA-репозитория. События user_events для
+//GET /api/users/events по-прежнему пишутся в spring.datasource, на таком узле это встроенная H2.
+//Если задан users.storage.journal, пользователи восстанавливаются из файла при перезапуске, а
+//users.storage.journal.fsync задаёт, когда изменения сбрасываются на диск
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.storage", havingValue = "memory")
+public class InMemoryStorageConfig {
+    @Bean
+    @Primary
+    public InMemoryUserRepository inMemoryUserRepository(
+            @Value("${users.storage.journal:}") String journal,
+            @Value("${users.storage.journal.fsync:interval}") InMemoryUserRepository.JournalFsync fsync,
+            @Value("${users.storage.journal.fsync-interval:100ms}") Duration fsyncInterval) {
+        return journal.isBlank() ? new InMemoryUserRepository()
+                : new InMemoryUserRepository(Path.of(journal), fsync, fsyncInterval);
+    }
+}
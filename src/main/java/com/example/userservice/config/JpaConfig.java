@@ -0,0 +1,29 @@
+package com.example.userservice.config;
+
+import com.example.userservice.model.User;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("!reactive")
+public class JpaConfig {
+    //Размер JDBC-пакета совпадает с шагом выделения id: на пакет вставок приходится не больше одного nextval.
+    //Значения, заданные явно через spring.jpa.properties, имеют приоритет
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", User.ID_ALLOCATION_SIZE);
+            properties.putIfAbsent("hibernate.order_inserts", true);
+        };
+    }
+
+    //Списки в IN (...) дополняются до степени двойки: запросы по спискам разной длины сводятся к нескольким
+    //вариантам SQL, и кэш планов Hibernate и подготовленных запросов не засоряется
+    @Bean
+    public HibernatePropertiesCustomizer inClausePaddingCustomizer() {
+        return properties -> properties.putIfAbsent(AvailableSettings.IN_CLAUSE_PARAMETER_PADDING, true);
+    }
+}
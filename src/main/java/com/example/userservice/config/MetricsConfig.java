@@ -0,0 +1,87 @@
+package com.example.userservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+
+//Метрики задержек. Время разбито по слоям:
+//  users.service                      - операция UserService целиком (тег operation)
+//  spring.data.repository.invocations - запросы к базе через UserRepository (тег method), регистрирует Spring Boot
+//  hikaricp.connections.acquire       - ожидание соединения из пула, регистрирует Spring Boot
+//  users.mapping                      - преобразования MapStruct
+//  users.json                         - сериализация и разбор JSON в HTTP-запросах (теги direction, type)
+//  users.cbor                         - то же для CBOR
+//  http.server.requests               - запрос целиком, регистрирует Spring Boot
+//Для всех них публикуются гистограммы, по которым Prometheus считает p50/p99 (/actuator/prometheus)
+//Счётчик users.coalesced - число запросов, получивших результат чужой загрузки того же пользователя
+@Configuration
+public class MetricsConfig {
+    public static final String SERVICE_TIMER = "users.service";
+    public static final String MAPPING_TIMER = "users.mapping";
+    public static final String COALESCED_COUNTER = "users.coalesced";
+    public static final String JSON_TIMER = "users.json";
+    public static final String CBOR_TIMER = "users.cbor";
+
+    private static final String[] HISTOGRAM_PREFIXES = {"users.", "spring.data.repository.invocations",
+            "hikaricp.connections.acquire", "http.server.requests"};
+
+    //Обрабатывает @Timed на методах UserService
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    //Границы гистограммы ограничены диапазоном 1 мс - 10 с, чтобы не плодить лишние бакеты
+    @Bean
+    public MeterFilter latencyHistogramFilter() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getType() != Meter.Type.TIMER || !hasHistogram(id.getName())) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                        .maximumExpectedValue((double) Duration.ofSeconds(10).toNanos())
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public TimedJsonHttpMessageConverter timedJsonHttpMessageConverter(ObjectMapper objectMapper,
+                                                                      MeterRegistry meterRegistry) {
+        return new TimedJsonHttpMessageConverter(objectMapper, meterRegistry);
+    }
+
+    //ObjectMapper собирается билдером Spring Boot, поэтому настройки spring.jackson.* действуют и на CBOR
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public TimedCborHttpMessageConverter timedCborHttpMessageConverter(Jackson2ObjectMapperBuilder builder,
+                                                                      MeterRegistry meterRegistry) {
+        ObjectMapper objectMapper = builder.createXmlMapper(false).factory(new CBORFactory()).build();
+        return new TimedCborHttpMessageConverter(objectMapper, meterRegistry);
+    }
+
+    private static boolean hasHistogram(String name) {
+        for (String prefix : HISTOGRAM_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.userservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//Чтение с реплик: включается списком users.read-replica.urls. Read-only методы UserService (@Transactional(readOnly
+//= true)) выполняются на репликах, записи и всё, что вне read-only транзакций, - на spring.datasource.url.
+//Пулы реплик повторяют настройки основного пула spring.datasource.hikari.*
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.read-replica.urls")
+public class ReadReplicaConfig {
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public ReadReplicaRoutingDataSource dataSource(HikariDataSource primaryDataSource,
+                                                  @Value("${users.read-replica.urls}") List<String> urls,
+                                                  @Value("${users.read-replica.username:#{null}}") String username,
+                                                  @Value("${users.read-replica.password:#{null}}") String password) {
+        List<HikariDataSource> replicas = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            primaryDataSource.copyStateTo(replica);
+            replica.setJdbcUrl(url);
+            replica.setPoolName("replica-" + replicas.size());
+            if (username != null) {
+                replica.setUsername(username);
+                replica.setPassword(password);
+            }
+            replicas.add(replica);
+        }
+        return new ReadReplicaRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${users.read-replica.sticky-window:5s}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+}
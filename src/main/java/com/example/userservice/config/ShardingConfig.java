@@ -0,0 +1,70 @@
+package com.example.userservice.config;
+
+import com.example.userservice.repository.ShardedUserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+//Шардирование: при заданном users.sharding.urls UserService работает с ShardedUserRepository вместо
+//JPA-репозитория. spring.datasource по-прежнему нужен JPA и должен указывать на одну из баз, обычно первый шард.
+//Схема каждого шарда создаётся и обновляется теми же миграциями Flyway
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.sharding.urls")
+public class ShardingConfig {
+    private static final Logger log = LoggerFactory.getLogger(ShardingConfig.class);
+
+    @Bean
+    @Primary
+    public ShardedUserRepository shardedUserRepository(DataSourceProperties properties, Flyway flyway,
+                                                       @Value("${users.sharding.urls}") List<String> urls) {
+        List<DataSource> shards = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            HikariDataSource shard = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .build();
+            shard.setPoolName("shard-" + shards.size());
+            Flyway.configure()
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(shard)
+                    .load()
+                    .migrate();
+            shards.add(shard);
+        }
+        ShardedUserRepository repository = new ShardedUserRepository(shards);
+        //Пользователи, записанные до появления user_keys, занимают свои имена и email до приёма запросов
+        long reserved = repository.reserveExistingKeys(1000);
+        if (reserved > 0) {
+            log.info("Reserved names and emails of {} existing users", reserved);
+        }
+        return repository;
+    }
+
+    //Перенос пользователей после добавления шарда: приложение запускается с новым списком users.sharding.urls
+    //и users.sharding.rebalance=true. Перенос выполняется после создания бинов, но до запуска веб-сервера,
+    //поэтому запросы не видят пользователей, которые ещё лежат в старом шарде
+    @Bean
+    @ConditionalOnProperty(name = "users.sharding.rebalance", havingValue = "true")
+    public SmartInitializingSingleton shardRebalancer(ShardedUserRepository shardedUserRepository,
+                                                      @Value("${users.sharding.rebalance-batch-size:1000}")
+                                                      int batchSize) {
+        return () -> {
+            long moved = shardedUserRepository.rebalance(batchSize);
+            log.info("Moved {} users across {} shards", moved, shardedUserRepository.shardCount());
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.userservice.config;
+
+import java.time.Duration;
+
+//Общий для всех экземпляров сервиса уровень кэша (например, Redis или Memcached), подключается бином.
+//Значения передаются сериализованными, поэтому экземпляры не делят между собой объекты.
+//Сбой get или put TwoTierCache считает промахом и идёт в базу, сбой evict пробрасывается вызывающему
+public interface SharedCacheTier {
+    byte[] get(String cacheName, String key);
+
+    void put(String cacheName, String key, byte[] value, Duration timeToLive);
+
+    void evict(String cacheName, String key);
+
+    void clear(String cacheName);
+}
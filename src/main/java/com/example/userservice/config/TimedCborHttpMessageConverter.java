@@ -0,0 +1,46 @@
+package com.example.userservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+//Конвертер CBOR (application/cbor) с замером времени сериализации и разбора, как у TimedJsonHttpMessageConverter.
+//Spring Boot подставляет его вместо стандартного CBOR-конвертера Spring MVC
+public class TimedCborHttpMessageConverter extends MappingJackson2CborHttpMessageConverter {
+    private final MeterRegistry meterRegistry;
+
+    public TimedCborHttpMessageConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(objectMapper);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return super.read(type, contextClass, inputMessage);
+        } finally {
+            sample.stop(HttpCodecTimers.timer(meterRegistry, MetricsConfig.CBOR_TIMER, "read", type));
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            sample.stop(HttpCodecTimers.timer(meterRegistry, MetricsConfig.CBOR_TIMER, "write", object.getClass()));
+        }
+    }
+}
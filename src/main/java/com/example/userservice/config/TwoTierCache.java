@@ -0,0 +1,166 @@
+package com.example.userservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+//Двухуровневый кэш: локальный Caffeine (ближний уровень) перед общим для всех экземпляров SharedCacheTier.
+//Промах ближнего уровня читается из общего, промах обоих - из базы, после чего значение кладётся в оба уровня.
+//Записи ближнего уровня на других экземплярах сбрасывает UserCacheInvalidator по журналу изменений
+public class TwoTierCache implements Cache {
+    private static final Logger log = LoggerFactory.getLogger(TwoTierCache.class);
+
+    public enum Consistency {
+        //Чтение сначала из ближнего уровня: чужие изменения видны после того, как до экземпляра дойдёт сброс
+        NEAR,
+        //Ближний уровень не используется, каждое чтение идёт в общий: чужие изменения видны сразу после фиксации
+        SHARED
+    }
+
+    private final CaffeineCache near;
+    private final SharedCacheTier shared;
+    private final Class<?> valueType;
+    private final Duration sharedTimeToLive;
+    private final Consistency consistency;
+    private final ObjectMapper objectMapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+
+    public TwoTierCache(CaffeineCache near, SharedCacheTier shared, Class<?> valueType, Duration sharedTimeToLive,
+                        Consistency consistency) {
+        this.near = near;
+        this.shared = shared;
+        this.valueType = valueType;
+        this.sharedTimeToLive = sharedTimeToLive;
+        this.consistency = consistency;
+    }
+
+    public CaffeineCache getNear() {
+        return near;
+    }
+
+    //Сброс только ближнего уровня: общий уровень уже сбросил экземпляр, изменивший данные
+    public void evictNear(Object key) {
+        near.evict(key);
+    }
+
+    @Override
+    public String getName() {
+        return near.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return near.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        if (consistency == Consistency.NEAR) {
+            ValueWrapper cached = near.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Object value = readShared(key);
+        if (value == null) {
+            return null;
+        }
+        if (consistency == Consistency.NEAR) {
+            near.put(key, value);
+        }
+        return new SimpleValueWrapper(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper cached = get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (type != null && !type.isInstance(cached.get())) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: "
+                    + cached.get());
+        }
+        return (T) cached.get();
+    }
+
+    //Одновременные загрузки одного ключа не объединяются: UserService делает это сам
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (consistency == Consistency.NEAR) {
+            near.put(key, value);
+        }
+        try {
+            shared.put(getName(), key.toString(), objectMapper.writeValueAsBytes(value), sharedTimeToLive);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write {} to shared cache {}", key, getName(), e);
+        }
+    }
+
+    //Внутри транзакции запись сбрасывается ещё раз после её завершения: иначе параллельное чтение между
+    //сбросом и фиксацией вернуло бы в кэш старое значение до истечения времени жизни
+    @Override
+    public void evict(Object key) {
+        evictBoth(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictBoth(key);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void clear() {
+        near.clear();
+        shared.clear(getName());
+    }
+
+    private void evictBoth(Object key) {
+        near.evict(key);
+        shared.evict(getName(), key.toString());
+    }
+
+    private Object readShared(Object key) {
+        try {
+            byte[] bytes = shared.get(getName(), key.toString());
+            return bytes == null ? null : objectMapper.readValue(bytes, valueType);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read {} from shared cache {}", key, getName(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.userservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.Executors;
+
+//Режим, в котором каждый HTTP-запрос (и блокирующие JPA-вызовы UserService внутри него) выполняется
+//в отдельном виртуальном потоке. Включается свойством users.virtual-threads.enabled=true
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+    static final String POOL_SIZE_PROPERTY = "spring.datasource.hikari.maximum-pool-size";
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    //Асинхронная часть запросов (например, StreamingResponseBody в /stream) тоже выполняется в виртуальных потоках
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    //Число одновременных запросов больше не ограничено пулом потоков Tomcat, поэтому ограничителем становится
+    //пул соединений. Размер пула берётся из users.virtual-threads.db-pool-size, если он не задан явно
+    @Bean
+    public static BeanPostProcessor virtualThreadsPoolSizer(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && !environment.containsProperty(POOL_SIZE_PROPERTY)) {
+                    dataSource.setMaximumPoolSize(
+                            environment.getProperty("users.virtual-threads.db-pool-size", Integer.class, 50));
+                }
+                return bean;
+            }
+        };
+    }
+}
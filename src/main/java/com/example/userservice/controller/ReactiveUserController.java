@@ -0,0 +1,124 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.exception.UserPreconditionFailedException;
+import com.example.userservice.exception.UserPreconditionRequiredException;
+import com.example.userservice.exception.UserVersionConflictException;
+import com.example.userservice.service.ReactiveUserService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//Реактивный вариант UserController с теми же путями, форматами и кодами ответов
+@RestController
+@RequestMapping("/api/users")
+@Validated
+@Profile("reactive")
+public class ReactiveUserController {
+    private final ReactiveUserService userService;
+    private final boolean requireVersion;
+
+    public ReactiveUserController(ReactiveUserService userService,
+                                  @Value("${users.update.require-version:false}") boolean requireVersion) {
+        this.userService = userService;
+        this.requireVersion = requireVersion;
+    }
+
+    @PostMapping("/add")
+    public Mono<ResponseEntity<UserResponseDTO>> createUser(@Valid @RequestBody UserRequestDTO requestDTO) {
+        return userService.createUser(requestDTO)
+                .map(created -> ResponseEntity
+                        .status(201)
+                        .body(created));
+    }
+
+    @GetMapping("/all")
+    public Flux<UserResponseDTO> getAllUsers() {
+        return userService.getAllUsers();
+    }
+
+    @GetMapping
+    public Mono<UserPageDTO> getUsersPage(
+            @RequestParam(defaultValue = "100")
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = 1000, message = "Limit must be at most 1000") int limit,
+            @RequestParam(required = false) Long after) {
+        return userService.getUsersPage(limit, after);
+    }
+
+    //Строки читаются из базы по мере того, как клиент успевает их принимать
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserResponseDTO> streamAllUsers() {
+        return userService.getAllUsers();
+    }
+
+    //ETag и Last-Modified те же, что у UserController, чтобы клиент мог передать тег в If-Match
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserResponseDTO>> getUserById(@PathVariable Long id) {
+        return userService.getUserById(id)
+                .map(user -> ResponseEntity.ok()
+                        .eTag(UserETags.of(user.getId(), user.getVersion()))
+                        .lastModified(UserETags.lastModified(user.getUpdatedAt()))
+                        .body(user))
+                .defaultIfEmpty(ResponseEntity
+                        .notFound()
+                        .build());
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Void>> updateUser(
+            @PathVariable Long id,
+            @Valid @RequestBody UserRequestDTO requestDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            return updateUserIfMatch(id, requestDTO, ifMatch);
+        }
+        if (requireVersion && requestDTO.getVersion() == null) {
+            return Mono.error(new UserPreconditionRequiredException(id));
+        }
+        return userService.updateUser(id, requestDTO)
+                .map(updated -> updated
+                        ? ResponseEntity.noContent().build()
+                        : ResponseEntity.notFound().build());
+    }
+
+    //Те же правила, что у UserController.updateUserIfMatch: любое невыполненное условие даёт 412
+    private Mono<ResponseEntity<Void>> updateUserIfMatch(Long id, UserRequestDTO requestDTO, String ifMatch) {
+        if (ifMatch.trim().equals("*")) {
+            requestDTO.setVersion(null);
+            return userService.updateUser(id, requestDTO)
+                    .flatMap(updated -> updated
+                            ? Mono.just(ResponseEntity.noContent().<Void>build())
+                            : Mono.error(new UserPreconditionFailedException(id)));
+        }
+        Long version = UserETags.versionFromIfMatch(id, ifMatch);
+        if (version == null) {
+            return Mono.error(new UserPreconditionFailedException(id));
+        }
+        requestDTO.setVersion(version);
+        return userService.updateUser(id, requestDTO)
+                .onErrorMap(UserVersionConflictException.class, e -> new UserPreconditionFailedException(id))
+                .flatMap(updated -> updated
+                        ? Mono.just(ResponseEntity.noContent().eTag(UserETags.of(id, version + 1)).<Void>build())
+                        : Mono.error(new UserPreconditionFailedException(id)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable Long id) {
+        return userService.deleteUser(id)
+                .map(deleted -> deleted
+                        ? ResponseEntity.noContent().build()
+                        : ResponseEntity.notFound().build());
+    }
+}
@@ -1,23 +1,72 @@
 package com.example.userservice.controller;
 
+import com.example.userservice.dto.BulkCreateResultDTO;
+import com.example.userservice.dto.UserBatchDTO;
+import com.example.userservice.dto.UserChangesDTO;
+import com.example.userservice.dto.UserEventPageDTO;
+import com.example.userservice.dto.UserIdsRequestDTO;
+import com.example.userservice.dto.UserPageDTO;
 import com.example.userservice.dto.UserRequestDTO;
 import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserSearchFilter;
+import com.example.userservice.dto.UserSearchPageDTO;
+import com.example.userservice.dto.UserVersionDTO;
+import com.example.userservice.exception.UserPreconditionFailedException;
+import com.example.userservice.exception.UserPreconditionRequiredException;
+import com.example.userservice.exception.UserVersionConflictException;
+import com.example.userservice.service.UserEventService;
 import com.example.userservice.service.UserService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.context.annotation.Profile;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/users")
 @Validated
 public class UserController {
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int STREAM_BATCH_SIZE = 500;
+
     private final UserService userService;
+    private final UserEventService userEventService;
+    private final ObjectWriter userWriter;
+    private final ObjectReader userRequestReader;
+    private final boolean requireVersion;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserEventService userEventService, ObjectMapper objectMapper,
+                          @Value("${users.update.require-version:false}") boolean requireVersion) {
         this.userService = userService;
+        this.userEventService = userEventService;
+        this.userWriter = objectMapper.writerFor(UserResponseDTO.class);
+        this.userRequestReader = objectMapper.readerFor(UserRequestDTO.class);
+        this.requireVersion = requireVersion;
     }
 
     @PostMapping("/add")
@@ -28,32 +77,241 @@ public class UserController {
                 .body(created);
     }
 
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<BulkCreateResultDTO> createUsers(@RequestBody List<UserRequestDTO> requests) {
+        return ResponseEntity.ok(userService.createUsers(requests.iterator()));
+    }
+
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public ResponseEntity<BulkCreateResultDTO> createUsersFromStream(InputStream body) throws IOException {
+        //Тело читается построчно, в памяти одновременно находится не больше одной порции пользователей
+        MappingIterator<UserRequestDTO> values = userRequestReader.readValues(body);
+        return ResponseEntity.ok(userService.createUsers(new Iterator<>() {
+            //MappingIterator заворачивает ошибки синтаксиса в RuntimeException, поэтому читаем через *Value()
+            @Override
+            public boolean hasNext() {
+                try {
+                    return values.hasNextValue();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public UserRequestDTO next() {
+                try {
+                    return values.nextValue();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }));
+    }
+
+    //ETag списка считается агрегатным запросом; при совпадении список не загружается и не сериализуется.
+    //Last-Modified не отдаётся: удаление пользователя не меняет максимальный updatedAt.
+    //ETag зависит только от данных, поэтому JSON и CBOR разделяются в кэшах заголовком Vary: Accept
     @GetMapping("/all")
-    public ResponseEntity<List<UserResponseDTO>> getAllUsers() {
+    public ResponseEntity<List<UserResponseDTO>> getAllUsers(WebRequest request) {
+        String eTag = UserETags.ofList(userService.getAllUsersVersion());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
         List<UserResponseDTO> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(users);
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<UserResponseDTO> getUserById(@PathVariable Long id) {
-        return userService.getUserById(id)
+    @GetMapping
+    public ResponseEntity<UserPageDTO> getUsersPage(
+            @RequestParam(defaultValue = "100")
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = 1000, message = "Limit must be at most 1000") int limit,
+            @RequestParam(required = false) Long after) {
+        return ResponseEntity.ok(userService.getUsersPage(limit, after));
+    }
+
+    //Несколько пользователей за один запрос: найденные в порядке переданных id и список ненайденных id
+    @PostMapping(value = "/batch-get", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<UserBatchDTO> getUsersByIds(@Valid @RequestBody UserIdsRequestDTO request) {
+        return ResponseEntity.ok(userService.getUsersByIds(request.getIds()));
+    }
+
+    //То же для коротких списков в строке запроса: GET /api/users?ids=1,2,3
+    @GetMapping(params = "ids")
+    public ResponseEntity<UserBatchDTO> getUsersByIdsParam(
+            @RequestParam @Size(max = 1000, message = "Ids must contain at most 1000 values")
+            List<@NotNull(message = "Id must not be null") Long> ids) {
+        return ResponseEntity.ok(userService.getUsersByIds(ids));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<UserSearchPageDTO> searchUsers(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String emailDomain,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(defaultValue = "id")
+            @Pattern(regexp = "(id|name|email|age|createdAt)(,(asc|desc))?",
+                    message = "Sort must be one of id, name, email, age, createdAt optionally followed by ,asc or ,desc")
+            String sort,
+            //Смещение page * size передаётся в запрос как int, поэтому при наибольшем size страница ограничена
+            @RequestParam(defaultValue = "0") @Min(value = 0, message = "Page must not be negative")
+            @Max(value = 2_000_000, message = "Page must be at most 2000000") int page,
+            @RequestParam(defaultValue = "100")
+            @Min(value = 1, message = "Size must be at least 1")
+            @Max(value = 1000, message = "Size must be at most 1000") int size) {
+        UserSearchFilter filter = new UserSearchFilter(name, email, emailDomain, minAge, maxAge,
+                createdFrom, createdTo);
+        return ResponseEntity.ok(userService.searchUsers(filter, sort, page, size));
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        //Пользователи выгружаются страницами и пишутся в ответ по мере чтения, весь список в памяти не держится
+        StreamingResponseBody body = out -> {
+            Long after = null;
+            do {
+                UserPageDTO page = userService.getUsersPage(STREAM_BATCH_SIZE, after);
+                for (UserResponseDTO user : page.getItems()) {
+                    out.write(userWriter.writeValueAsBytes(user));
+                    out.write('\n');
+                }
+                out.flush();
+                after = page.getNextCursor();
+            } while (after != null);
+        };
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    //Инкрементальная синхронизация: пользователи, изменённые после отметки (since, after), и id удалённых.
+    //Клиент передаёт nextSince и nextAfter ответа в следующий запрос, пока hasNext равен true
+    @GetMapping("/changes")
+    public ResponseEntity<UserChangesDTO> getChanges(
+            @RequestParam(defaultValue = "1970-01-01T00:00:00")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "100")
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = 1000, message = "Limit must be at most 1000") int limit) {
+        return ResponseEntity.ok(userService.getChanges(since, after, limit));
+    }
+
+    //Журнал изменений после позиции after. При wait > 0 пустой ответ откладывается до появления событий
+    //или истечения wait секунд; клиент передаёт nextOffset ответа как after следующего запроса
+    @GetMapping("/events")
+    public ResponseEntity<UserEventPageDTO> getEvents(
+            @RequestParam(defaultValue = "0") @Min(value = 0, message = "After must not be negative") long after,
+            @RequestParam(defaultValue = "100")
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = 1000, message = "Limit must be at most 1000") int limit,
+            @RequestParam(defaultValue = "0")
+            @Min(value = 0, message = "Wait must not be negative")
+            @Max(value = 30, message = "Wait must be at most 30 seconds") int wait) {
+        return ResponseEntity.ok(userEventService.getEvents(after, limit, Duration.ofSeconds(wait)));
+    }
+
+    @GetMapping("/by-email/{email}")
+    public ResponseEntity<UserResponseDTO> getUserByEmail(@PathVariable String email) {
+        return userService.getUserByEmail(email)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity
                         .notFound()
                         .build());
     }
 
-    @PutMapping("/{id}")
-    public ResponseEntity<UserResponseDTO> updateUser(
-            @PathVariable Long id,
-            @Valid @RequestBody UserRequestDTO requestDTO) {
-        return userService.updateUser(id, requestDTO)
+    @GetMapping("/by-name/{name}")
+    public ResponseEntity<UserResponseDTO> getUserByName(@PathVariable String name) {
+        return userService.getUserByName(name)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity
                         .notFound()
                         .build());
     }
 
+    @GetMapping("/{id}")
+    public ResponseEntity<UserResponseDTO> getUserById(@PathVariable Long id, WebRequest request) {
+        //Для условного запроса сначала сверяется только версия пользователя: при совпадении ответ 304
+        //отдаётся без загрузки и сериализации
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null) {
+            Optional<UserVersionDTO> version = userService.getUserVersion(id);
+            if (version.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (request.checkNotModified(UserETags.of(id, version.get().version()),
+                    UserETags.lastModified(version.get().updatedAt()))) {
+                return null;
+            }
+        }
+        return userService.getUserById(id)
+                .map(user -> ResponseEntity.ok()
+                        .eTag(UserETags.of(user.getId(), user.getVersion()))
+                        .lastModified(UserETags.lastModified(user.getUpdatedAt()))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(user))
+                .orElseGet(() -> ResponseEntity
+                        .notFound()
+                        .build());
+    }
+
+    //Без version и If-Match последнее обновление перезаписывает предыдущие, а при users.update.require-version=true
+    //такие обновления запрещены ответом 428 Precondition Required
+    @PutMapping("/{id}")
+    public ResponseEntity<Void> updateUser(
+            @PathVariable Long id,
+            @Valid @RequestBody UserRequestDTO requestDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            return updateUserIfMatch(id, requestDTO, ifMatch);
+        }
+        if (requireVersion && requestDTO.getVersion() == null) {
+            throw new UserPreconditionRequiredException(id);
+        }
+        boolean updated = userService.updateUser(id, requestDTO);
+        if (updated) {
+            return ResponseEntity.noContent().build();
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    //Версия из If-Match подставляется в условный UPDATE, поэтому проверка и запись атомарны.
+    //Любое невыполненное условие, включая отсутствие пользователя, даёт 412 Precondition Failed
+    private ResponseEntity<Void> updateUserIfMatch(Long id, UserRequestDTO requestDTO, String ifMatch) {
+        if (ifMatch.trim().equals("*")) {
+            requestDTO.setVersion(null);
+            if (!userService.updateUser(id, requestDTO)) {
+                throw new UserPreconditionFailedException(id);
+            }
+            return ResponseEntity.noContent().build();
+        }
+        Long version = UserETags.versionFromIfMatch(id, ifMatch);
+        if (version == null) {
+            throw new UserPreconditionFailedException(id);
+        }
+        requestDTO.setVersion(version);
+        try {
+            if (!userService.updateUser(id, requestDTO)) {
+                throw new UserPreconditionFailedException(id);
+            }
+        } catch (UserVersionConflictException e) {
+            throw new UserPreconditionFailedException(id);
+        }
+        return ResponseEntity.noContent()
+                .eTag(UserETags.of(id, version + 1))
+                .build();
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
         boolean deleted = userService.deleteUser(id);
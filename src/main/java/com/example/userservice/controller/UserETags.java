@@ -0,0 +1,42 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.dto.UserListVersionDTO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+//Сильные ETag для ответов с пользователями. Тег пользователя "<id>-<version>" меняется при каждом обновлении,
+//поэтому его можно проверять по одной колонке version, не загружая пользователя целиком
+final class UserETags {
+    private UserETags() {}
+
+    static String of(long id, long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    static String ofList(UserListVersionDTO listVersion) {
+        return "\"all-" + listVersion.count() + "-" + listVersion.maxId() + "-" + listVersion.rowHashSum() + "\"";
+    }
+
+    //createdAt и updatedAt записываются через LocalDateTime.now(), то есть в часовом поясе сервера
+    static long lastModified(LocalDateTime updatedAt) {
+        return updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    //Версия пользователя id из заголовка If-Match или null, если ни один из перечисленных тегов к нему не относится.
+    //Слабые теги (W/"...") для If-Match не подходят и пропускаются
+    static Long versionFromIfMatch(long id, String ifMatch) {
+        String prefix = "\"" + id + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                try {
+                    return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.userservice.dto;
+
+import java.util.List;
+
+public class BulkCreateResultDTO {
+    private int created;
+    private int failed;
+    private List<BulkItemResultDTO> items;
+
+    public BulkCreateResultDTO() {}
+
+    public BulkCreateResultDTO(int created, int failed, List<BulkItemResultDTO> items) {
+        this.created = created;
+        this.failed = failed;
+        this.items = items;
+    }
+
+    public static BulkCreateResultDTO of(List<BulkItemResultDTO> items) {
+        int created = (int) items.stream()
+                .filter(item -> item.getStatus() == BulkItemResultDTO.Status.CREATED)
+                .count();
+        return new BulkCreateResultDTO(created, items.size() - created, items);
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<BulkItemResultDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<BulkItemResultDTO> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.userservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResultDTO {
+    public enum Status { CREATED, FAILED }
+
+    private int index;  //позиция элемента во входном массиве или потоке
+    private Status status;
+    private Long id;
+    private Map<String, String> errors;
+
+    public BulkItemResultDTO() {}
+
+    public BulkItemResultDTO(int index, Status status, Long id, Map<String, String> errors) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.errors = errors;
+    }
+
+    public static BulkItemResultDTO created(int index, Long id) {
+        return new BulkItemResultDTO(index, Status.CREATED, id, null);
+    }
+
+    public static BulkItemResultDTO failed(int index, Map<String, String> errors) {
+        return new BulkItemResultDTO(index, Status.FAILED, null, errors);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(Map<String, String> errors) {
+        this.errors = errors;
+    }
+}
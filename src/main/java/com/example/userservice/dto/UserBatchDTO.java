@@ -0,0 +1,32 @@
+package com.example.userservice.dto;
+
+import java.util.List;
+
+//Ответ на запрос нескольких пользователей по id: найденные в порядке запроса и id, которых нет
+public class UserBatchDTO {
+    private List<UserResponseDTO> items;
+    private List<Long> missingIds;
+
+    public UserBatchDTO() {}
+
+    public UserBatchDTO(List<UserResponseDTO> items, List<Long> missingIds) {
+        this.items = items;
+        this.missingIds = missingIds;
+    }
+
+    public List<UserResponseDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<UserResponseDTO> items) {
+        this.items = items;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
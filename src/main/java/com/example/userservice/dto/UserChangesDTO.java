@@ -0,0 +1,65 @@
+package com.example.userservice.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//Страница GET /api/users/changes: пользователи, созданные или изменённые после отметки (since, after), и id удалённых.
+//Следующая страница запрашивается с since=nextSince и after=nextAfter
+public class UserChangesDTO {
+    private List<UserResponseDTO> upserts;
+    private List<Long> deletedIds;
+    private LocalDateTime nextSince;
+    private long nextAfter;
+    private boolean hasNext;
+
+    public UserChangesDTO() {}
+
+    public UserChangesDTO(List<UserResponseDTO> upserts, List<Long> deletedIds, LocalDateTime nextSince,
+                          long nextAfter, boolean hasNext) {
+        this.upserts = upserts;
+        this.deletedIds = deletedIds;
+        this.nextSince = nextSince;
+        this.nextAfter = nextAfter;
+        this.hasNext = hasNext;
+    }
+
+    public List<UserResponseDTO> getUpserts() {
+        return upserts;
+    }
+
+    public void setUpserts(List<UserResponseDTO> upserts) {
+        this.upserts = upserts;
+    }
+
+    public List<Long> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public void setDeletedIds(List<Long> deletedIds) {
+        this.deletedIds = deletedIds;
+    }
+
+    public LocalDateTime getNextSince() {
+        return nextSince;
+    }
+
+    public void setNextSince(LocalDateTime nextSince) {
+        this.nextSince = nextSince;
+    }
+
+    public long getNextAfter() {
+        return nextAfter;
+    }
+
+    public void setNextAfter(long nextAfter) {
+        this.nextAfter = nextAfter;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.userservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+//Событие журнала изменений. Для CREATED и UPDATED содержит состояние пользователя после изменения,
+//для DELETED - только userId
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserEventDTO {
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private Long id;    //позиция события в журнале
+    private Type type;
+    private Long userId;
+    private String name;
+    private String email;
+    private Integer age;
+    private Long version;
+    private LocalDateTime occurredAt;
+
+    public UserEventDTO() {}
+
+    public UserEventDTO(Long id, Type type, Long userId, String name, String email, Integer age, Long version,
+                        LocalDateTime occurredAt) {
+        this.id = id;
+        this.type = type;
+        this.userId = userId;
+        this.name = name;
+        this.email = email;
+        this.age = age;
+        this.version = version;
+        this.occurredAt = occurredAt;
+    }
+
+    public static UserEventDTO of(Type type, UserResponseDTO user, LocalDateTime occurredAt) {
+        return new UserEventDTO(null, type, user.getId(), user.getName(), user.getEmail(), user.getAge(),
+                user.getVersion(), occurredAt);
+    }
+
+    public static UserEventDTO deleted(Long userId, LocalDateTime occurredAt) {
+        return new UserEventDTO(null, Type.DELETED, userId, null, null, null, null, occurredAt);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Integer getAge() {
+        return age;
+    }
+
+    public void setAge(Integer age) {
+        this.age = age;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
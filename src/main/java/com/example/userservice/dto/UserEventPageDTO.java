@@ -0,0 +1,31 @@
+package com.example.userservice.dto;
+
+import java.util.List;
+
+public class UserEventPageDTO {
+    private List<UserEventDTO> items;
+    private long nextOffset;    //значение after для следующего запроса: id последнего события или прежний after
+
+    public UserEventPageDTO() {}
+
+    public UserEventPageDTO(List<UserEventDTO> items, long nextOffset) {
+        this.items = items;
+        this.nextOffset = nextOffset;
+    }
+
+    public List<UserEventDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<UserEventDTO> items) {
+        this.items = items;
+    }
+
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(long nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.userservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+//Тело POST /api/users/batch-get
+public class UserIdsRequestDTO {
+    @NotEmpty(message = "Ids are required")
+    @Size(max = 1000, message = "Ids must contain at most 1000 values")
+    private List<@NotNull(message = "Id must not be null") Long> ids;
+
+    public UserIdsRequestDTO() {}
+
+    public UserIdsRequestDTO(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.userservice.dto;
+
+//Сводка по всей таблице для ETag ответа GET /api/users/all. rowHashSum - сумма хэшей пар (id, version) всех строк:
+//в отличие от суммы версий она меняется, когда удаление одного пользователя и создание другого сохраняют
+//count, maxId и сумму версий (id выдаются диапазонами и не обязательно растут)
+public record UserListVersionDTO(long count, Long maxId, Long rowHashSum) {
+    private static final long MODULUS = 2_147_483_659L;
+
+    //Нелинейный хэш строки по простому модулю больше 2^31: константа имеет тип bigint, а промежуточные
+    //значения в него помещаются, поэтому базы считают ту же сумму запросом rowHashSql
+    public static long rowHash(long id, long version) {
+        long a = Math.floorMod(Math.floorMod(id, MODULUS) * 1_000_003L + version, MODULUS);
+        return Math.floorMod(a * a + a * 999_983L, MODULUS);
+    }
+
+    public static String rowHashSql(String id, String version) {
+        String a = "mod(mod(" + id + ", " + MODULUS + ") * 1000003 + " + version + ", " + MODULUS + ")";
+        return "mod(" + a + " * " + a + " + " + a + " * 999983, " + MODULUS + ")";
+    }
+}
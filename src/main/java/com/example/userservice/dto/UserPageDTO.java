@@ -0,0 +1,31 @@
+package com.example.userservice.dto;
+
+import java.util.List;
+
+public class UserPageDTO {
+    private List<UserResponseDTO> items;
+    private Long nextCursor;    //id последнего элемента страницы, null если страница последняя
+
+    public UserPageDTO() {}
+
+    public UserPageDTO(List<UserResponseDTO> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<UserResponseDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<UserResponseDTO> items) {
+        this.items = items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
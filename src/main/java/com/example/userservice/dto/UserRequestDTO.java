@@ -16,6 +16,9 @@ public class UserRequestDTO {
     @Max(value = 120, message = "Age must be at most 120")
     private Integer age;
 
+    //Необязательная версия для PUT: если указана, обновление выполняется только при совпадении с текущей
+    private Long version;
+
     public UserRequestDTO() {}
 
     public UserRequestDTO(String name, String email, Integer age) {
@@ -24,6 +27,11 @@ public class UserRequestDTO {
         this.age = age;
     }
 
+    public UserRequestDTO(String name, String email, Integer age, Long version) {
+        this(name, email, age);
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -47,4 +55,12 @@ public class UserRequestDTO {
     public void setAge(Integer age) {
         this.age = age;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
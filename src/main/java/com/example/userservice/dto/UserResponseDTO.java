@@ -8,6 +8,8 @@ public class UserResponseDTO {
     private String email;
     private int age;
     private LocalDateTime createdAt;
+    private long version;
+    private LocalDateTime updatedAt;
 
     public UserResponseDTO() {}
 
@@ -19,6 +21,17 @@ public class UserResponseDTO {
         this.createdAt = createdAt;
     }
 
+    public UserResponseDTO(Long id, String name, String email, int age, LocalDateTime createdAt, long version) {
+        this(id, name, email, age, createdAt);
+        this.version = version;
+    }
+
+    public UserResponseDTO(Long id, String name, String email, int age, LocalDateTime createdAt, long version,
+                           LocalDateTime updatedAt) {
+        this(id, name, email, age, createdAt, version);
+        this.updatedAt = updatedAt;
+    }
+
     public Long getId() {
         return id;
     }
@@ -58,4 +71,20 @@ public class UserResponseDTO {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -0,0 +1,83 @@
+package com.example.userservice.dto;
+
+import java.time.LocalDateTime;
+
+//Условия поиска пользователей, null в поле означает отсутствие условия
+public class UserSearchFilter {
+    private String namePrefix;
+    private String email;
+    private String emailDomain;
+    private Integer minAge;
+    private Integer maxAge;
+    private LocalDateTime createdFrom;   //включительно
+    private LocalDateTime createdTo;     //не включительно
+
+    public UserSearchFilter() {}
+
+    public UserSearchFilter(String namePrefix, String email, String emailDomain, Integer minAge, Integer maxAge,
+                            LocalDateTime createdFrom, LocalDateTime createdTo) {
+        this.namePrefix = namePrefix;
+        this.email = email;
+        this.emailDomain = emailDomain;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.createdFrom = createdFrom;
+        this.createdTo = createdTo;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getEmailDomain() {
+        return emailDomain;
+    }
+
+    public void setEmailDomain(String emailDomain) {
+        this.emailDomain = emailDomain;
+    }
+
+    public Integer getMinAge() {
+        return minAge;
+    }
+
+    public void setMinAge(Integer minAge) {
+        this.minAge = minAge;
+    }
+
+    public Integer getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Integer maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public LocalDateTime getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public void setCreatedFrom(LocalDateTime createdFrom) {
+        this.createdFrom = createdFrom;
+    }
+
+    public LocalDateTime getCreatedTo() {
+        return createdTo;
+    }
+
+    public void setCreatedTo(LocalDateTime createdTo) {
+        this.createdTo = createdTo;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.userservice.dto;
+
+import java.util.List;
+
+public class UserSearchPageDTO {
+    private List<UserResponseDTO> items;
+    private int page;
+    private int size;
+    private boolean hasNext;    //общее число результатов не считается, чтобы не выполнять лишний count(*)
+
+    public UserSearchPageDTO() {}
+
+    public UserSearchPageDTO(List<UserResponseDTO> items, int page, int size, boolean hasNext) {
+        this.items = items;
+        this.page = page;
+        this.size = size;
+        this.hasNext = hasNext;
+    }
+
+    public List<UserResponseDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<UserResponseDTO> items) {
+        this.items = items;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.userservice.dto;
+
+import java.time.LocalDateTime;
+
+//След удалённого пользователя в таблице user_tombstones
+public record UserTombstoneDTO(long userId, LocalDateTime deletedAt) {
+}
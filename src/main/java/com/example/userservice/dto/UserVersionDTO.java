@@ -0,0 +1,7 @@
+package com.example.userservice.dto;
+
+import java.time.LocalDateTime;
+
+//Версия пользователя без остальных полей: по ней проверяются заголовки If-None-Match и If-Modified-Since
+public record UserVersionDTO(long version, LocalDateTime updatedAt) {
+}
@@ -1,10 +1,17 @@
 package com.example.userservice.exception;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,4 +28,69 @@ public class GlobalExceptionHandler {
         });
         return ResponseEntity.badRequest().body(errors);
     }
+
+    //Аналог MethodArgumentNotValidException для реактивного стека, формат ответа тот же
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, String>> handleReactiveValidationExceptions(WebExchangeBindException ex) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
+        return ResponseEntity.badRequest().body(errors);
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Map<String, String>> handleConstraintViolations(ConstraintViolationException ex) {
+        Map<String, String> errors = new HashMap<>();
+        //Путь нарушения имеет вид "метод.параметр", в ответ отдаём только имя параметра
+        for (ConstraintViolation<?> violation : ex.getConstraintViolations()) {
+            String path = violation.getPropertyPath().toString();
+            errors.put(path.substring(path.lastIndexOf('.') + 1), violation.getMessage());
+        }
+        return ResponseEntity.badRequest().body(errors);
+    }
+
+    //Ошибки разбора NDJSON-потока, который читается вручную, а не через HttpMessageConverter
+    @ExceptionHandler(UncheckedIOException.class)
+    public ResponseEntity<Map<String, String>> handleMalformedJson(UncheckedIOException ex) {
+        if (!(ex.getCause() instanceof JsonProcessingException cause)) {
+            throw ex;
+        }
+        return ResponseEntity.badRequest().body(Map.of("body", "Malformed JSON: " + cause.getOriginalMessage()));
+    }
+
+    @ExceptionHandler(UserVersionConflictException.class)
+    public ResponseEntity<Map<String, String>> handleVersionConflict(UserVersionConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("version", "Version does not match the current version of the user"));
+    }
+
+    @ExceptionHandler(UserEmailAmbiguousException.class)
+    public ResponseEntity<Map<String, String>> handleEmailAmbiguous(UserEmailAmbiguousException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("email", "Several users have this email in different letter case"));
+    }
+
+    @ExceptionHandler(UserAlreadyExistsException.class)
+    public ResponseEntity<Map<String, String>> handleAlreadyExists(UserAlreadyExistsException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getErrors());
+    }
+
+    //Очередь отложенной записи переполнена: клиенту предлагается повторить запрос через секунду
+    @ExceptionHandler(UserWriteQueueFullException.class)
+    public ResponseEntity<Map<String, String>> handleWriteQueueFull(UserWriteQueueFullException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("body", "Too many pending writes, retry later"));
+    }
+
+    @ExceptionHandler(UserPreconditionFailedException.class)
+    public ResponseEntity<Map<String, String>> handlePreconditionFailed(UserPreconditionFailedException ex) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body(Map.of("If-Match", "ETag does not match the current version of the user"));
+    }
+
+    @ExceptionHandler(UserPreconditionRequiredException.class)
+    public ResponseEntity<Map<String, String>> handlePreconditionRequired(UserPreconditionRequiredException ex) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED)
+                .body(Map.of("If-Match", "Send If-Match or version to update the user"));
+    }
 }
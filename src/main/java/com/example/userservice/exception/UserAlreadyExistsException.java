@@ -0,0 +1,17 @@
+package com.example.userservice.exception;
+
+import java.util.Map;
+
+//Имя или email уже заняты другим пользователем; errors - сообщения по полям, как при ошибках валидации
+public class UserAlreadyExistsException extends RuntimeException {
+    private final Map<String, String> errors;
+
+    public UserAlreadyExistsException(Map<String, String> errors) {
+        super("User already exists: " + errors);
+        this.errors = errors;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+}
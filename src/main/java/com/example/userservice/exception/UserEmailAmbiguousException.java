@@ -0,0 +1,15 @@
+package com.example.userservice.exception;
+
+//GET /by-email: точного совпадения нет, а без учёта регистра email совпадает у нескольких пользователей
+public class UserEmailAmbiguousException extends RuntimeException {
+    private final String email;
+
+    public UserEmailAmbiguousException(String email) {
+        super("Several users have email " + email + " in different letter case");
+        this.email = email;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+}
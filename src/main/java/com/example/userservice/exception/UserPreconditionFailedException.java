@@ -0,0 +1,15 @@
+package com.example.userservice.exception;
+
+//Условие из заголовка If-Match не выполнено: пользователя нет или его версия уже другая
+public class UserPreconditionFailedException extends RuntimeException {
+    private final Long userId;
+
+    public UserPreconditionFailedException(Long userId) {
+        super("User " + userId + " does not match If-Match");
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.userservice.exception;
+
+//PUT без version в теле и без If-Match при users.update.require-version=true
+public class UserPreconditionRequiredException extends RuntimeException {
+    private final Long userId;
+
+    public UserPreconditionRequiredException(Long userId) {
+        super("Update of user " + userId + " requires a version or If-Match");
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
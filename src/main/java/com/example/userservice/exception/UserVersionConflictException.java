@@ -0,0 +1,14 @@
+package com.example.userservice.exception;
+
+public class UserVersionConflictException extends RuntimeException {
+    private final Long userId;
+
+    public UserVersionConflictException(Long userId) {
+        super("User " + userId + " was modified concurrently");
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.userservice.exception;
+
+public class UserWriteQueueFullException extends RuntimeException {
+    public UserWriteQueueFullException(int capacity) {
+        super("Write queue is full (" + capacity + " pending users)");
+    }
+}
@@ -1,20 +1,39 @@
 package com.example.userservice.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
 @Table(name = "users")
 public class User {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    //Оптимизатор Hibernate pooled: значение nextval - последний id диапазона (value - ID_ALLOCATION_SIZE, value],
+    //который целиком принадлежит получившему его экземпляру. Так же id выделяют реактивный и шардированный
+    //репозитории, чтобы их диапазоны не пересекались с диапазонами JPA
+    public static long firstIdOfBlock(long nextval) {
+        return Math.max(1, nextval - ID_ALLOCATION_SIZE + 1);
+    }
+
     protected User() {};
     public User(String name, String email, int age, LocalDateTime createdAt) {
         this.name = name;
         this.email = email;
+        this.emailDomain = emailDomain(email);
         this.age = age;
         this.createdAt = createdAt;
     }
+
+    //Домен почты в нижнем регистре, хранится отдельной колонкой ради индекса для поиска по домену
+    public static String emailDomain(String email) {
+        return email.substring(email.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+    }
+
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "name", nullable = false, unique = true)
@@ -23,12 +42,24 @@ public class User {
     @Column(name = "email", nullable = false, unique = true)
     private String email;
 
+    @Column(name = "email_domain", nullable = false)
+    private String emailDomain;
+
     @Column(name = "age", nullable = false)
     private int age;
 
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    //Номер версии для оптимистической блокировки, увеличивается при каждом обновлении
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private long version;
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -48,12 +79,17 @@ public class User {
 
     public void setEmail(String email) {
         this.email = email;
+        this.emailDomain = emailDomain(email);
     }
 
     public String getEmail() {
         return email;
     }
 
+    public String getEmailDomain() {
+        return emailDomain;
+    }
+
     public void setAge(int age) {
         this.age = age;
     }
@@ -70,6 +106,23 @@ public class User {
         return createdAt;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    //Новый пользователь считается изменённым в момент создания; дальше updatedAt меняют запросы обновления.
+    //Вызывается и при вставке мимо JPA (ShardedUserRepository)
+    @PrePersist
+    public void initUpdatedAt() {
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     public void print() {
         System.out.println("user " + this.id + ":");
         System.out.println("name: " + this.name);
@@ -0,0 +1,379 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.repository.InMemoryUserRepository.JournalFsync;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+//Журнал InMemoryUserRepository на диске: двоичные записи в отображённом в память файле, только дописываются.
+//Запись - заголовок постоянного формата (длина, CRC32, операция, id, версия, возраст, даты) и имя с email в UTF-8.
+//Дописанная запись сразу попадает в страничный кэш ОС и переживает падение процесса; переживёт ли она сбой ОС,
+//решает политика fsync. В памяти держится индекс id -> смещение последней записи пользователя: по нему
+//журнал сжимается копированием живых записей в новый файл, без обращения к хранилищу
+class InMemoryUserJournal implements Closeable {
+    enum Operation { UPSERT, DELETE }
+
+    record Entry(Operation op, long id, String name, String email, Integer age, LocalDateTime createdAt,
+                 LocalDateTime updatedAt, Long version, LocalDateTime deletedAt) {}
+
+    //Последняя запись пользователя: строка с наибольшей версией или удаление, которое окончательно
+    private record Slot(int offset, int length, long version, boolean deleted) {}
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryUserJournal.class);
+    private static final int MAGIC = 0x5553524A;
+    private static final int FORMAT = 1;
+    private static final int FILE_HEADER = 8;
+    //length, crc, op, id, version, age, createdAt (секунды, наносекунды), updatedAt или deletedAt
+    private static final int RECORD_HEADER = 4 + 4 + 1 + 8 + 8 + 4 + 12 + 12;
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    //Журнал сжимается, когда мёртвых записей больше, чем живых, и они занимают хотя бы столько байт
+    private static final int MIN_COMPACTION_GARBAGE = 4 << 20;
+    private static final Duration COMPACTION_CHECK = Duration.ofSeconds(10);
+
+    private final Path path;
+    private final JournalFsync fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, Slot> index = new HashMap<>();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private final ScheduledExecutorService background;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private long liveBytes;
+    //Байты, дописанные за всё время, и сколько из них уже сброшено на диск; не зависят от сжатия файла
+    private long appended;
+    private long durable;
+    private boolean syncing;
+
+    InMemoryUserJournal(Path path, JournalFsync fsync, Duration fsyncInterval) {
+        this.path = path;
+        this.fsync = fsync;
+        this.background = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("user-journal").daemon().factory());
+        if (fsync == JournalFsync.INTERVAL) {
+            background.scheduleWithFixedDelay(this::syncQuietly, fsyncInterval.toMillis(), fsyncInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+        background.scheduleWithFixedDelay(this::compactQuietly, COMPACTION_CHECK.toMillis(),
+                COMPACTION_CHECK.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    //Файл отображается в память и прочитывается целиком; возвращаются только последние записи пользователей.
+    //Оборванная или повреждённая запись в конце (процесс остановился посреди записи) отбрасывается
+    List<Entry> open() {
+        lock.lock();
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new DataAccessResourceFailureException("User journal " + path + " is larger than 2 GB");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_CAPACITY));
+            if (size == 0) {
+                buffer.putInt(0, MAGIC).putInt(4, FORMAT);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+                throw new DataAccessResourceFailureException(path + " is not a user journal");
+            }
+            writePosition = FILE_HEADER;
+            boolean torn = false;
+            while (writePosition + RECORD_HEADER <= buffer.capacity()) {
+                int length = buffer.getInt(writePosition);
+                if (length == 0) {
+                    break;
+                }
+                if (length < RECORD_HEADER || writePosition + length > buffer.capacity()
+                        || crc(buffer, writePosition, length) != buffer.getInt(writePosition + 4)) {
+                    torn = true;
+                    break;
+                }
+                track(writePosition, length);
+                writePosition += length;
+            }
+            appended = writePosition;
+            durable = appended;
+            //Сжатие переписывает файл без хвоста и мёртвых записей, поэтому дописывание начинается с чистого места
+            if (torn || writePosition - FILE_HEADER > liveBytes) {
+                compact();
+            }
+            List<Entry> entries = new ArrayList<>(index.size());
+            for (Slot slot : index.values()) {
+                entries.add(decode(buffer, slot.offset()));
+            }
+            return entries;
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Failed to open user journal " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Возвращает позицию, которую надо передать в awaitDurable; копирование в отображённый файл не ждёт диска
+    long append(List<Entry> entries) {
+        List<byte[]> records = entries.stream().map(InMemoryUserJournal::encode).toList();
+        lock.lock();
+        try {
+            for (byte[] record : records) {
+                ensureCapacity(record.length);
+                buffer.put(writePosition, record);
+                track(writePosition, record.length);
+                writePosition += record.length;
+                appended += record.length;
+            }
+            return appended;
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Failed to append to user journal " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //При fsync=always вызывающий ждёт, пока его записи не окажутся на диске. Писатели, пришедшие во время
+    //сброса, ждут следующего, и он покрывает их всех (group commit): один force на пачку изменений
+    void awaitDurable(long position) {
+        if (fsync == JournalFsync.ALWAYS) {
+            sync(position);
+        }
+    }
+
+    private void sync(long position) {
+        syncLock.lock();
+        try {
+            while (durable < position) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                syncLock.unlock();
+                long forced = 0;
+                try {
+                    forced = force();
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    durable = Math.max(durable, forced);
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    //Сбрасывается отображение, в которое сейчас пишут: предыдущие при росте и сжатии уже сброшены под lock
+    private long force() {
+        MappedByteBuffer target;
+        long position;
+        lock.lock();
+        try {
+            target = buffer;
+            position = appended;
+        } finally {
+            lock.unlock();
+        }
+        target.force();
+        return position;
+    }
+
+    private void syncQuietly() {
+        try {
+            lock.lock();
+            long position;
+            try {
+                position = appended;
+            } finally {
+                lock.unlock();
+            }
+            sync(position);
+        } catch (RuntimeException e) {
+            log.warn("Failed to sync user journal {}", path, e);
+        }
+    }
+
+    private void compactQuietly() {
+        lock.lock();
+        try {
+            long garbage = writePosition - FILE_HEADER - liveBytes;
+            if (garbage > liveBytes && garbage >= MIN_COMPACTION_GARBAGE) {
+                compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to compact user journal {}", path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Последняя запись каждого пользователя копируется во временный файл, он сбрасывается на диск и атомарно
+    //подменяет журнал. Писатели ждут на lock всё время копирования
+    private void compact() throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        int capacity = Math.max(INITIAL_CAPACITY, Math.toIntExact(Math.min(Integer.MAX_VALUE, 2 * liveBytes)));
+        Map<Long, Slot> moved = new HashMap<>(index.size() * 2);
+        MappedByteBuffer compacted;
+        FileChannel compactedChannel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            compacted = compactedChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(capacity, FILE_HEADER + liveBytes));
+            compacted.putInt(0, MAGIC).putInt(4, FORMAT);
+            int position = FILE_HEADER;
+            for (Map.Entry<Long, Slot> entry : index.entrySet()) {
+                Slot slot = entry.getValue();
+                compacted.put(position, buffer, slot.offset(), slot.length());
+                moved.put(entry.getKey(), new Slot(position, slot.length(), slot.version(), slot.deleted()));
+                position += slot.length();
+            }
+            compacted.force();
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writePosition = position;
+        } catch (IOException | RuntimeException e) {
+            compactedChannel.close();
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        channel.close();
+        channel = compactedChannel;
+        buffer = compacted;
+        index.clear();
+        index.putAll(moved);
+        //Всё, что было дописано до сжатия, теперь лежит на диске в новом файле
+        markDurable(appended);
+    }
+
+    private void markDurable(long position) {
+        syncLock.lock();
+        try {
+            durable = Math.max(durable, position);
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    //Файл растёт удвоением; старое отображение сбрасывается, чтобы force() нового покрывал всё недописанное
+    private void ensureCapacity(int length) throws IOException {
+        if ((long) writePosition + length <= buffer.capacity()) {
+            return;
+        }
+        long capacity = Math.max(2L * buffer.capacity(), (long) writePosition + length);
+        if (capacity > Integer.MAX_VALUE) {
+            if ((long) writePosition + length > Integer.MAX_VALUE) {
+                throw new DataAccessResourceFailureException("User journal " + path + " is larger than 2 GB");
+            }
+            capacity = Integer.MAX_VALUE;
+        }
+        if (fsync != JournalFsync.NONE) {
+            buffer.force();
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    //Запись становится последней для своего id по тем же правилам, по которым InMemoryUserRepository
+    //восстанавливает состояние: удаление окончательно, из строк побеждает наибольшая версия
+    private void track(int offset, int length) {
+        long id = buffer.getLong(offset + 9);
+        boolean deleted = buffer.get(offset + 8) == Operation.DELETE.ordinal();
+        long version = buffer.getLong(offset + 17);
+        Slot current = index.get(id);
+        if (current != null && (current.deleted() || !deleted && version <= current.version())) {
+            return;
+        }
+        index.put(id, new Slot(offset, length, version, deleted));
+        liveBytes += length - (current == null ? 0 : current.length());
+    }
+
+    private static byte[] encode(Entry entry) {
+        boolean deleted = entry.op() == Operation.DELETE;
+        byte[] name = deleted ? new byte[0] : entry.name().getBytes(StandardCharsets.UTF_8);
+        byte[] email = deleted ? new byte[0] : entry.email().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + 2 + name.length + 2 + email.length);
+        record.putInt(record.capacity()).putInt(0)
+                .put((byte) entry.op().ordinal())
+                .putLong(entry.id())
+                .putLong(deleted ? 0 : entry.version())
+                .putInt(deleted ? 0 : entry.age());
+        putTime(record, deleted ? entry.deletedAt() : entry.createdAt());
+        putTime(record, deleted ? entry.deletedAt() : entry.updatedAt());
+        record.putShort((short) name.length).put(name).putShort((short) email.length).put(email);
+        record.putInt(4, crc(record, 0, record.capacity()));
+        return record.array();
+    }
+
+    private static Entry decode(ByteBuffer buffer, int offset) {
+        long id = buffer.getLong(offset + 9);
+        LocalDateTime updatedAt = getTime(buffer, offset + 41);
+        if (buffer.get(offset + 8) == Operation.DELETE.ordinal()) {
+            return new Entry(Operation.DELETE, id, null, null, null, null, null, null, updatedAt);
+        }
+        int nameOffset = offset + RECORD_HEADER;
+        String name = getString(buffer, nameOffset);
+        String email = getString(buffer, nameOffset + 2 + Short.toUnsignedInt(buffer.getShort(nameOffset)));
+        return new Entry(Operation.UPSERT, id, name, email, buffer.getInt(offset + 25), getTime(buffer, offset + 29),
+                updatedAt, buffer.getLong(offset + 17), null);
+    }
+
+    private static void putTime(ByteBuffer record, LocalDateTime time) {
+        record.putLong(time.toEpochSecond(ZoneOffset.UTC)).putInt(time.getNano());
+    }
+
+    private static LocalDateTime getTime(ByteBuffer buffer, int offset) {
+        return LocalDateTime.ofEpochSecond(buffer.getLong(offset), buffer.getInt(offset + 8), ZoneOffset.UTC);
+    }
+
+    private static String getString(ByteBuffer buffer, int offset) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort(offset))];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //CRC32 всей записи после поля crc
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + 8, length - 8));
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        background.shutdownNow();
+        lock.lock();
+        try {
+            if (channel != null) {
+                buffer.force();
+                channel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserListVersionDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserSearchFilter;
+import com.example.userservice.dto.UserTombstoneDTO;
+import com.example.userservice.dto.UserVersionDTO;
+import com.example.userservice.model.User;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+//Хранилище пользователей в памяти процесса без базы (users.storage=memory). Строки неизменяемы и заменяются
+//целиком, поэтому чтения не берут блокировок. Имя и email занимаются в уникальных индексах через putIfAbsent
+//до записи строки, так что два пользователя не получат одно значение, как и при unique-ограничениях таблицы
+//users; вставки тоже обходятся без блокировок. Изменения одного пользователя выполняются по очереди под
+//блокировкой из WRITE_STRIPES по его id: иначе неудачное обновление могло бы освободить значение, которое
+//одновременно заняло удачное. Остальные индексы обновляются после строки и при чтении сверяются с ней.
+//Транзакций нет: изменение видно сразу и не откатывается вместе с транзакцией Spring
+public class InMemoryUserRepository implements UserStore, Closeable {
+    //Когда записи журнала сбрасываются на диск: always - до возврата из вставки, обновления или удаления,
+    //interval - фоновым потоком раз в заданный интервал, none - когда решит ОС
+    public enum JournalFsync { ALWAYS, INTERVAL, NONE }
+
+    private record Row(long id, String name, String email, String emailDomain, int age, LocalDateTime createdAt,
+                       LocalDateTime updatedAt, long version) {
+        UserResponseDTO toResponse() {
+            return new UserResponseDTO(id, name, email, age, createdAt, version, updatedAt);
+        }
+
+        String normalizedEmail() {
+            return email.toLowerCase(Locale.ROOT);
+        }
+
+        ChangeKey changeKey() {
+            return new ChangeKey(updatedAt, id);
+        }
+
+        InMemoryUserJournal.Entry toJournal() {
+            return new InMemoryUserJournal.Entry(InMemoryUserJournal.Operation.UPSERT, id, name, email, age,
+                    createdAt, updatedAt, version, null);
+        }
+    }
+
+    private record ChangeKey(LocalDateTime updatedAt, long id) {}
+
+    private static final Comparator<ChangeKey> CHANGE_ORDER =
+            Comparator.comparing(ChangeKey::updatedAt).thenComparingLong(ChangeKey::id);
+    private static final Comparator<UserTombstoneDTO> TOMBSTONE_ORDER =
+            Comparator.comparing(UserTombstoneDTO::deletedAt).thenComparingLong(UserTombstoneDTO::userId);
+    //Поля сортировки поиска
+    private static final Map<String, Comparator<Row>> SORT_FIELDS = Map.of(
+            "id", Comparator.comparingLong(Row::id),
+            "name", Comparator.comparing(Row::name),
+            "email", Comparator.comparing(Row::email),
+            "age", Comparator.comparingInt(Row::age),
+            "createdAt", Comparator.comparing(Row::createdAt));
+
+    private static final int WRITE_STRIPES = 64;
+
+    private final ConcurrentSkipListMap<Long, Row> rows = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Long> idsByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    //Email в нижнем регистре -> id; уникальность по нему не требуется, как и у users_email_lower_idx
+    private final ConcurrentMap<String, Set<Long>> idsByNormalizedEmail = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<ChangeKey> changes = new ConcurrentSkipListSet<>(CHANGE_ORDER);
+    private final ConcurrentSkipListSet<UserTombstoneDTO> tombstones = new ConcurrentSkipListSet<>(TOMBSTONE_ORDER);
+    private final AtomicLong lastId = new AtomicLong();
+    private final ReentrantLock[] writeLocks = new ReentrantLock[WRITE_STRIPES];
+    private final InMemoryUserJournal journal;
+
+    public InMemoryUserRepository() {
+        this.journal = null;
+        Arrays.setAll(writeLocks, stripe -> new ReentrantLock());
+    }
+
+    public InMemoryUserRepository(Path journalPath) {
+        this(journalPath, JournalFsync.INTERVAL, Duration.ofMillis(100));
+    }
+
+    //Состояние восстанавливается из журнала, без обращения к базе
+    public InMemoryUserRepository(Path journalPath, JournalFsync fsync, Duration fsyncInterval) {
+        this.journal = new InMemoryUserJournal(journalPath, fsync, fsyncInterval);
+        Arrays.setAll(writeLocks, stripe -> new ReentrantLock());
+        restore(journal.open());
+    }
+
+    @Override
+    public List<User> insertAll(List<User> users) {
+        List<Row> inserted = new ArrayList<>(users.size());
+        try {
+            for (User user : users) {
+                long id = lastId.incrementAndGet();
+                if (idsByName.putIfAbsent(user.getName(), id) != null) {
+                    throw new DuplicateKeyException("Name or email is already taken");
+                }
+                if (idsByEmail.putIfAbsent(user.getEmail(), id) != null) {
+                    idsByName.remove(user.getName(), id);
+                    throw new DuplicateKeyException("Name or email is already taken");
+                }
+                user.setId(id);
+                user.initUpdatedAt();
+                inserted.add(new Row(id, user.getName(), user.getEmail(), user.getEmailDomain(), user.getAge(),
+                        user.getCreatedAt(), user.getUpdatedAt(), user.getVersion()));
+            }
+        } catch (DuplicateKeyException e) {
+            //Пакет вставляется целиком или не вставляется, как и в одной транзакции
+            for (Row row : inserted) {
+                idsByName.remove(row.name(), row.id());
+                idsByEmail.remove(row.email(), row.id());
+            }
+            throw e;
+        }
+        for (Row row : inserted) {
+            rows.put(row.id(), row);
+            index(row);
+        }
+        awaitDurable(append(inserted.stream().map(Row::toJournal).toList()));
+        return users;
+    }
+
+    @Override
+    public List<String> findExistingNames(Collection<String> names) {
+        return names.stream().filter(idsByName::containsKey).toList();
+    }
+
+    @Override
+    public List<String> findExistingEmails(Collection<String> emails) {
+        return emails.stream().filter(idsByEmail::containsKey).toList();
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return rows.containsKey(id);
+    }
+
+    @Override
+    public int updateUser(Long id, String name, String email, String emailDomain, int age, LocalDateTime updatedAt) {
+        return update(id, name, email, emailDomain, age, updatedAt, null);
+    }
+
+    @Override
+    public int updateUserIfVersion(Long id, String name, String email, String emailDomain, int age,
+                                   LocalDateTime updatedAt, long version) {
+        return update(id, name, email, emailDomain, age, updatedAt, version);
+    }
+
+    //Новые имя и email занимаются до замены строки, прежние освобождаются после неё
+    private int update(long id, String name, String email, String emailDomain, int age, LocalDateTime updatedAt,
+                       Long expectedVersion) {
+        ReentrantLock lock = writeLock(id);
+        long position;
+        lock.lock();
+        try {
+            Row current = rows.get(id);
+            if (current == null || expectedVersion != null && current.version() != expectedVersion) {
+                return 0;
+            }
+            boolean nameClaimed = claim(idsByName, name, id);
+            try {
+                claim(idsByEmail, email, id);
+            } catch (DuplicateKeyException e) {
+                if (nameClaimed) {
+                    idsByName.remove(name, id);
+                }
+                throw e;
+            }
+            Row updated = new Row(id, name, email, emailDomain, age, current.createdAt(), updatedAt,
+                    current.version() + 1);
+            rows.put(id, updated);
+            if (!current.name().equals(name)) {
+                idsByName.remove(current.name(), id);
+            }
+            if (!current.email().equals(email)) {
+                idsByEmail.remove(current.email(), id);
+            }
+            unindex(current);
+            index(updated);
+            position = append(List.of(updated.toJournal()));
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(position);
+        return 1;
+    }
+
+    //true, если значение занято этим вызовом, false - если оно уже принадлежит пользователю
+    private static boolean claim(ConcurrentMap<String, Long> index, String value, long id) {
+        Long owner = index.putIfAbsent(value, id);
+        if (owner != null && owner != id) {
+            throw new DuplicateKeyException("Name or email is already taken");
+        }
+        return owner == null;
+    }
+
+    @Override
+    public int deleteUser(Long id, LocalDateTime deletedAt) {
+        ReentrantLock lock = writeLock(id);
+        long position;
+        lock.lock();
+        try {
+            Row removed = rows.remove(id);
+            if (removed == null) {
+                return 0;
+            }
+            idsByName.remove(removed.name(), removed.id());
+            idsByEmail.remove(removed.email(), removed.id());
+            unindex(removed);
+            UserTombstoneDTO tombstone = new UserTombstoneDTO(id, deletedAt);
+            tombstones.add(tombstone);
+            position = append(List.of(deleteEntry(tombstone)));
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(position);
+        return 1;
+    }
+
+    private ReentrantLock writeLock(long id) {
+        return writeLocks[Math.floorMod(Long.hashCode(id), WRITE_STRIPES)];
+    }
+
+    @Override
+    public Optional<UserResponseDTO> findResponseById(Long id) {
+        return Optional.ofNullable(rows.get(id)).map(Row::toResponse);
+    }
+
+    @Override
+    public List<UserResponseDTO> findResponsesByIds(Collection<Long> ids) {
+        List<UserResponseDTO> found = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Row row = rows.get(id);
+            if (row != null) {
+                found.add(row.toResponse());
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<UserResponseDTO> findAllResponses() {
+        return rows.values().stream().map(Row::toResponse).toList();
+    }
+
+    @Override
+    public Optional<UserVersionDTO> findVersionById(Long id) {
+        return Optional.ofNullable(rows.get(id)).map(row -> new UserVersionDTO(row.version(), row.updatedAt()));
+    }
+
+    @Override
+    public UserListVersionDTO findListVersion() {
+        long count = 0;
+        long rowHashSum = 0;
+        Long maxId = null;
+        for (Row row : rows.values()) {
+            count++;
+            rowHashSum += UserListVersionDTO.rowHash(row.id(), row.version());
+            maxId = row.id();
+        }
+        return new UserListVersionDTO(count, maxId, count == 0 ? null : rowHashSum);
+    }
+
+    @Override
+    public List<UserResponseDTO> findPageAfter(long after, int limit) {
+        return rows.tailMap(after, false).values().stream().limit(limit).map(Row::toResponse).toList();
+    }
+
+    @Override
+    public Optional<UserResponseDTO> findByName(String name) {
+        return Optional.ofNullable(findRow(idsByName, name, Row::name)).map(Row::toResponse);
+    }
+
+    @Override
+    public List<UserResponseDTO> findByNormalizedEmail(String email) {
+        Set<Long> ids = idsByNormalizedEmail.get(email);
+        if (ids == null) {
+            return List.of();
+        }
+        return ids.stream()
+                .sorted()
+                .map(rows::get)
+                .filter(row -> row != null && row.normalizedEmail().equals(email))
+                .map(Row::toResponse)
+                .toList();
+    }
+
+    @Override
+    public List<UserResponseDTO> findChangedAfter(LocalDateTime since, long after, LocalDateTime until, int limit) {
+        List<UserResponseDTO> changed = new ArrayList<>();
+        for (ChangeKey key : changes.tailSet(new ChangeKey(since, after), false)) {
+            if (key.updatedAt().isAfter(until) || changed.size() == limit) {
+                break;
+            }
+            Row row = rows.get(key.id());
+            if (row != null && row.changeKey().equals(key)) {
+                changed.add(row.toResponse());
+            } else {
+                changes.remove(key);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public List<UserTombstoneDTO> findDeletedAfter(LocalDateTime since, long after, LocalDateTime until, int limit) {
+        return tombstones.tailSet(new UserTombstoneDTO(after, since), false).stream()
+                .takeWhile(tombstone -> !tombstone.deletedAt().isAfter(until))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<UserResponseDTO> search(UserSearchFilter filter, Sort sort, long offset, int limit) {
+        Stream<Row> matching = rows.values().stream().filter(matches(filter));
+        Comparator<Row> order = null;
+        for (Sort.Order field : sort) {
+            Comparator<Row> comparator = SORT_FIELDS.get(field.getProperty());
+            if (comparator == null) {
+                throw new IllegalArgumentException("Unknown sort property: " + field.getProperty());
+            }
+            comparator = field.isAscending() ? comparator : comparator.reversed();
+            order = order == null ? comparator : order.thenComparing(comparator);
+        }
+        //Строки перебираются по возрастанию id, а сортировка устойчива, поэтому порядок однозначен
+        if (order != null) {
+            matching = matching.sorted(order);
+        }
+        return matching.skip(offset).limit(limit).map(Row::toResponse).toList();
+    }
+
+    private static Predicate<Row> matches(UserSearchFilter filter) {
+        String emailDomain = filter.getEmailDomain() == null ? null
+                : filter.getEmailDomain().toLowerCase(Locale.ROOT);
+        return row -> (filter.getNamePrefix() == null || row.name().startsWith(filter.getNamePrefix()))
+                && (filter.getEmail() == null || row.email().equals(filter.getEmail()))
+                && (emailDomain == null || row.emailDomain().equals(emailDomain))
+                && (filter.getMinAge() == null || row.age() >= filter.getMinAge())
+                && (filter.getMaxAge() == null || row.age() <= filter.getMaxAge())
+                && (filter.getCreatedFrom() == null || !row.createdAt().isBefore(filter.getCreatedFrom()))
+                && (filter.getCreatedTo() == null || row.createdAt().isBefore(filter.getCreatedTo()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    //Значение занимается в уникальном индексе раньше, чем записывается строка: findExistingNames и
+    //findExistingEmails уже считают его занятым, а пользователь по нему находится только после появления строки
+    private Row findRow(ConcurrentMap<String, Long> index, String value, Function<Row, String> field) {
+        Long id = index.get(value);
+        if (id == null) {
+            return null;
+        }
+        Row row = rows.get(id);
+        return row != null && field.apply(row).equals(value) ? row : null;
+    }
+
+    private void index(Row row) {
+        idsByNormalizedEmail.compute(row.normalizedEmail(), (email, ids) -> {
+            Set<Long> updated = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            updated.add(row.id());
+            return updated;
+        });
+        changes.add(row.changeKey());
+    }
+
+    private void unindex(Row row) {
+        idsByNormalizedEmail.computeIfPresent(row.normalizedEmail(), (email, ids) -> {
+            ids.remove(row.id());
+            return ids.isEmpty() ? null : ids;
+        });
+        changes.remove(row.changeKey());
+    }
+
+    private long append(List<InMemoryUserJournal.Entry> entries) {
+        return journal != null ? journal.append(entries) : 0;
+    }
+
+    //Диска ждут уже после снятия блокировки id, чтобы сброс не задерживал следующие изменения того же id
+    private void awaitDurable(long position) {
+        if (journal != null) {
+            journal.awaitDurable(position);
+        }
+    }
+
+    private static InMemoryUserJournal.Entry deleteEntry(UserTombstoneDTO tombstone) {
+        return new InMemoryUserJournal.Entry(InMemoryUserJournal.Operation.DELETE, tombstone.userId(), null, null,
+                null, null, null, null, tombstone.deletedAt());
+    }
+
+    //Записи одного id могут попасть в журнал не в порядке изменений, поэтому из строк остаётся версия
+    //с наибольшим номером, а удаление окончательно: id не выдаются повторно
+    private void restore(List<InMemoryUserJournal.Entry> entries) {
+        Map<Long, Row> restored = new HashMap<>();
+        Map<Long, UserTombstoneDTO> deleted = new HashMap<>();
+        long maxId = 0;
+        for (InMemoryUserJournal.Entry entry : entries) {
+            maxId = Math.max(maxId, entry.id());
+            if (entry.op() == InMemoryUserJournal.Operation.DELETE) {
+                restored.remove(entry.id());
+                deleted.putIfAbsent(entry.id(), new UserTombstoneDTO(entry.id(), entry.deletedAt()));
+                continue;
+            }
+            if (deleted.containsKey(entry.id())) {
+                continue;
+            }
+            Row row = new Row(entry.id(), entry.name(), entry.email(), User.emailDomain(entry.email()), entry.age(),
+                    entry.createdAt(), entry.updatedAt(), entry.version());
+            restored.merge(entry.id(), row, (previous, next) -> next.version() > previous.version() ? next : previous);
+        }
+        for (Row row : restored.values()) {
+            rows.put(row.id(), row);
+            idsByName.put(row.name(), row.id());
+            idsByEmail.put(row.email(), row.id());
+            index(row);
+        }
+        tombstones.addAll(deleted.values());
+        lastId.set(maxId);
+    }
+}
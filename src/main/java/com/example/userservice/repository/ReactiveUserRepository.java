@@ -0,0 +1,199 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserEventDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.model.User;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+//Доступ к таблице users для реактивного стека. Схема та же, что у JPA-сущности User. Как и в JPA-стеке,
+//каждое изменение пишет событие в user_events в той же транзакции
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+    private static final String COLUMNS = "id, name, email, age, created_at, version, updated_at";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+
+    //Текущий диапазон id, выделенный последовательностью по той же схеме pooled, что и у JPA
+    private long nextId;
+    private long blockEnd;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = TransactionalOperator.create(
+                new R2dbcTransactionManager(databaseClient.getConnectionFactory()));
+    }
+
+    //id берётся при подписке, а не при сборке Mono: повторная подписка получает новый id,
+    //а Mono без подписчика id не расходует
+    public Mono<Long> nextId() {
+        return Mono.defer(() -> {
+            synchronized (this) {
+                if (nextId < blockEnd) {
+                    return Mono.just(nextId++);
+                }
+            }
+            //При одновременном исчерпании диапазона несколько запросов получат свои диапазоны,
+            //остаток одного из них будет потерян, но id не повторятся
+            return databaseClient.sql("select nextval('users_seq')")
+                    .map(row -> row.get(0, Long.class))
+                    .one()
+                    .map(blockLast -> {
+                        long blockStart = User.firstIdOfBlock(blockLast);
+                        synchronized (this) {
+                            nextId = blockStart + 1;
+                            blockEnd = blockLast + 1;
+                        }
+                        return blockStart;
+                    });
+        });
+    }
+
+    public Mono<Void> insert(UserResponseDTO user) {
+        return databaseClient.sql("insert into users (" + COLUMNS + ", email_domain) " +
+                        "values (:id, :name, :email, :age, :createdAt, :version, :updatedAt, :emailDomain)")
+                .bind("id", user.getId())
+                .bind("name", user.getName())
+                .bind("email", user.getEmail())
+                .bind("age", user.getAge())
+                .bind("createdAt", user.getCreatedAt())
+                .bind("version", user.getVersion())
+                .bind("updatedAt", user.getUpdatedAt())
+                .bind("emailDomain", User.emailDomain(user.getEmail()))
+                .then()
+                .then(insertEvent(UserEventDTO.of(UserEventDTO.Type.CREATED, user, user.getCreatedAt())))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<UserResponseDTO> findById(Long id) {
+        return databaseClient.sql("select " + COLUMNS + " from users where id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toResponseDTO)
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("select 1 from users where id = :id")
+                .bind("id", id)
+                .map(row -> true)
+                .first()
+                .defaultIfEmpty(false);
+    }
+
+    public Flux<UserResponseDTO> findPageAfter(long after, int limit) {
+        return databaseClient.sql("select " + COLUMNS + " from users where id > :after order by id limit :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toResponseDTO)
+                .all();
+    }
+
+    //Строки запрашиваются у драйвера по мере того, как подписчик готов их принять
+    public Flux<UserResponseDTO> findAll() {
+        return databaseClient.sql("select " + COLUMNS + " from users order by id")
+                .map(ReactiveUserRepository::toResponseDTO)
+                .all();
+    }
+
+    public Mono<Long> updateUser(Long id, String name, String email, int age) {
+        LocalDateTime now = LocalDateTime.now();
+        return databaseClient.sql("update users set name = :name, email = :email, email_domain = :emailDomain, " +
+                        "age = :age, updated_at = :updatedAt, version = version + 1 where id = :id")
+                .bind("id", id)
+                .bind("name", name)
+                .bind("email", email)
+                .bind("emailDomain", User.emailDomain(email))
+                .bind("age", age)
+                .bind("updatedAt", now)
+                .fetch()
+                .rowsUpdated()
+                //UPDATE без условия не возвращает новую версию, поэтому она дочитывается в той же транзакции
+                .flatMap(updated -> updated == 0 ? Mono.just(updated) : databaseClient
+                        .sql("select version from users where id = :id")
+                        .bind("id", id)
+                        .map(row -> row.get("version", Long.class))
+                        .one()
+                        .flatMap(version -> insertEvent(new UserEventDTO(null, UserEventDTO.Type.UPDATED, id, name,
+                                email, age, version, now)))
+                        .thenReturn(updated))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<Long> updateUserIfVersion(Long id, String name, String email, int age, long version) {
+        LocalDateTime now = LocalDateTime.now();
+        return databaseClient.sql("update users set name = :name, email = :email, email_domain = :emailDomain, " +
+                        "age = :age, updated_at = :updatedAt, version = version + 1 where id = :id and version = :version")
+                .bind("id", id)
+                .bind("name", name)
+                .bind("email", email)
+                .bind("emailDomain", User.emailDomain(email))
+                .bind("age", age)
+                .bind("updatedAt", now)
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(updated -> updated == 0 ? Mono.just(updated) : insertEvent(new UserEventDTO(null,
+                        UserEventDTO.Type.UPDATED, id, name, email, age, version + 1, now))
+                        .thenReturn(updated))
+                .as(transactionalOperator::transactional);
+    }
+
+    //Как и в JPA-стеке, удаление оставляет надгробие для GET /api/users/changes в той же транзакции
+    public Mono<Long> deleteUser(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        return databaseClient.sql("delete from users where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(deleted -> deleted == 0 ? Mono.just(deleted) : databaseClient
+                        .sql("insert into user_tombstones (user_id, deleted_at) values (:id, :deletedAt)")
+                        .bind("id", id)
+                        .bind("deletedAt", now)
+                        .then()
+                        .then(insertEvent(UserEventDTO.deleted(id, now)))
+                        .thenReturn(deleted))
+                .as(transactionalOperator::transactional);
+    }
+
+    //Вызывается внутри транзакции изменения. Ожидающие GET /api/users/events на экземплярах со Spring MVC
+    //увидят событие при очередной перепроверке журнала
+    private Mono<Void> insertEvent(UserEventDTO event) {
+        DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("insert into user_events " +
+                        "(type, user_id, name, email, age, version, occurred_at) " +
+                        "values (:type, :userId, :name, :email, :age, :version, :occurredAt)")
+                .bind("type", event.getType().name())
+                .bind("userId", event.getUserId())
+                .bind("occurredAt", event.getOccurredAt());
+        insert = bindNullable(insert, "name", event.getName(), String.class);
+        insert = bindNullable(insert, "email", event.getEmail(), String.class);
+        insert = bindNullable(insert, "age", event.getAge(), Integer.class);
+        insert = bindNullable(insert, "version", event.getVersion(), Long.class);
+        return insert.then();
+    }
+
+    private static <T> DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                      String name, T value, Class<T> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static UserResponseDTO toResponseDTO(Readable row) {
+        return new UserResponseDTO(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class),
+                row.get("created_at", LocalDateTime.class),
+                row.get("version", Long.class),
+                row.get("updated_at", LocalDateTime.class));
+    }
+}
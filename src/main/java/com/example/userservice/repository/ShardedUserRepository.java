@@ -0,0 +1,654 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserEventDTO;
+import com.example.userservice.dto.UserListVersionDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserSearchFilter;
+import com.example.userservice.dto.UserTombstoneDTO;
+import com.example.userservice.dto.UserVersionDTO;
+import com.example.userservice.model.User;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+//Пользователи, распределённые по нескольким базам с одинаковой схемой. Шард пользователя определяется хэшем id,
+//поэтому операции по id обращаются к одной базе, а выборки списков и поиск опрашивают все базы параллельно
+//и сливают результаты в общем порядке.
+//id выдаёт последовательность users_seq первого шарда диапазонами по User.ID_ALLOCATION_SIZE, как и в JPA,
+//поэтому они уникальны во всех базах. Имена и email всех пользователей занимаются в таблице user_keys первого
+//шарда в транзакции, которая охватывает запись в шард пользователя, поэтому их уникальность обеспечивают
+//ограничения одной базы.
+//События журнала пишутся в user_outbox шарда пользователя в одной транзакции с изменением, надгробия - в
+//user_tombstones; relayEvents переносит события в общий журнал user_events первого шарда
+public class ShardedUserRepository implements UserStore, Closeable {
+    private static final String COLUMNS = "id, name, email, age, created_at, version, updated_at";
+    private static final String INSERT = "insert into users (" + COLUMNS + ", email_domain) " +
+            "values (:id, :name, :email, :age, :createdAt, :version, :updatedAt, :emailDomain)";
+    private static final String INSERT_OUTBOX = "insert into user_outbox " +
+            "(type, user_id, name, email, age, version, occurred_at) " +
+            "values (:type, :userId, :name, :email, :age, :version, :occurredAt)";
+    private static final String RELAY_EVENT = "insert into user_events " +
+            "(type, user_id, name, email, age, version, occurred_at, outbox_shard, outbox_id) " +
+            "select :type, :userId, :name, :email, :age, :version, :occurredAt, :shard, :id " +
+            "where not exists (select 1 from user_events where outbox_shard = :shard and outbox_id = :id)";
+    private static final String INSERT_TOMBSTONE = "insert into user_tombstones (user_id, deleted_at) " +
+            "values (:id, :deletedAt)";
+    private static final String EVENT_COLUMNS = "id, type, user_id, name, email, age, version, occurred_at";
+    private static final RowMapper<UserEventDTO> EVENT_MAPPER = (rs, rowNum) -> new UserEventDTO(
+            rs.getLong("id"),
+            UserEventDTO.Type.valueOf(rs.getString("type")),
+            rs.getLong("user_id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getObject("age", Integer.class),
+            rs.getObject("version", Long.class),
+            rs.getObject("occurred_at", LocalDateTime.class));
+    private static final String INSERT_KEYS = "insert into user_keys (user_id, name, email) " +
+            "values (:id, :name, :email)";
+    private static final RowMapper<UserResponseDTO> RESPONSE_MAPPER = (rs, rowNum) -> new UserResponseDTO(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getInt("age"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getLong("version"),
+            rs.getObject("updated_at", LocalDateTime.class));
+    //Поля сортировки поиска и соответствующие им колонки
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id", "name", "name", "email", "email", "age", "age", "createdAt", "created_at");
+
+    private final List<DataSource> dataSources;
+    private final List<Shard> shards;
+    private final ExecutorService fanOut = Executors.newVirtualThreadPerTaskExecutor();
+
+    //Текущий диапазон id, выделенный последовательностью первого шарда
+    private long nextId;
+    private long blockEnd;
+
+    public ShardedUserRepository(List<DataSource> dataSources) {
+        this.dataSources = List.copyOf(dataSources);
+        List<Shard> shards = new ArrayList<>(dataSources.size());
+        for (DataSource dataSource : dataSources) {
+            shards.add(new Shard(new NamedParameterJdbcTemplate(dataSource),
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource))));
+        }
+        this.shards = List.copyOf(shards);
+    }
+
+    //Согласованное хэширование Jump Consistent Hash (Lamping, Veach): при добавлении шарда в конец списка
+    //в него переходит около 1/N пользователей, остальные остаются на месте, тогда как остаток от деления
+    //переместил бы большинство строк. Поэтому шарды можно только дописывать в конец, но не удалять и не
+    //переставлять. Умножение перемешивает биты, чтобы идущие подряд id равномерно расходились по шардам
+    public static int shardOf(long id, int shardCount) {
+        long key = id * 0x9E3779B97F4A7C15L;
+        long bucket = -1;
+        long next = 0;
+        while (next < shardCount) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    //Сначала имена и email занимаются в user_keys первого шарда. Его транзакция фиксируется последней, после
+    //вставки строк: одновременная вставка тех же значений в любой шард ждёт её и получает нарушение
+    //уникальности, а при ошибке ключи откатываются. Запись в первый шард идёт в той же транзакции
+    @Override
+    public List<User> insertAll(List<User> users) {
+        List<SqlParameterSource> keys = new ArrayList<>(users.size());
+        Map<Integer, List<SqlParameterSource>> rowsByShard = new HashMap<>();
+        Map<Integer, List<SqlParameterSource>> eventsByShard = new HashMap<>();
+        for (User user : users) {
+            user.setId(nextId());
+            user.initUpdatedAt();
+            SqlParameterSource row = insertParameters(user);
+            keys.add(row);
+            int shard = shardOf(user.getId(), shards.size());
+            rowsByShard.computeIfAbsent(shard, index -> new ArrayList<>()).add(row);
+            eventsByShard.computeIfAbsent(shard, index -> new ArrayList<>()).add(outboxParameters(new UserEventDTO(
+                    null, UserEventDTO.Type.CREATED, user.getId(), user.getName(), user.getEmail(), user.getAge(),
+                    user.getVersion(), user.getCreatedAt())));
+        }
+        Shard keyShard = shards.get(0);
+        return keyShard.transactions().execute(status -> {
+            keyShard.jdbc().batchUpdate(INSERT_KEYS, keys.toArray(new SqlParameterSource[0]));
+            //Транзакции остальных шардов независимы: если один шард отклонил вставку, уже вставленное
+            //в другие шарды удаляется, чтобы пакет целиком можно было повторить
+            List<Integer> written = new ArrayList<>();
+            try {
+                for (Map.Entry<Integer, List<SqlParameterSource>> entry : rowsByShard.entrySet()) {
+                    Shard shard = shards.get(entry.getKey());
+                    SqlParameterSource[] rows = entry.getValue().toArray(new SqlParameterSource[0]);
+                    SqlParameterSource[] events = eventsByShard.get(entry.getKey()).toArray(new SqlParameterSource[0]);
+                    shard.transactions().executeWithoutResult(inner -> {
+                        shard.jdbc().batchUpdate(INSERT, rows);
+                        shard.jdbc().batchUpdate(INSERT_OUTBOX, events);
+                    });
+                    written.add(entry.getKey());
+                }
+            } catch (DataAccessException e) {
+                for (int shard : written) {
+                    removeInserted(shards.get(shard),
+                            rowsByShard.get(shard).stream().map(row -> (Long) row.getValue("id")).toList());
+                }
+                throw e;
+            }
+            return users;
+        });
+    }
+
+    //Зафиксированную вставку могли уже прочитать, а её события - перенести в журнал, поэтому строки
+    //удаляются так же, как deleteUser: с надгробиями и событиями DELETED
+    private void removeInserted(Shard shard, List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        SqlParameterSource[] tombstones = ids.stream()
+                .map(id -> new MapSqlParameterSource().addValue("id", id).addValue("deletedAt", now))
+                .toArray(SqlParameterSource[]::new);
+        SqlParameterSource[] events = ids.stream()
+                .map(id -> outboxParameters(UserEventDTO.deleted(id, now)))
+                .toArray(SqlParameterSource[]::new);
+        shard.transactions().executeWithoutResult(status -> {
+            shard.jdbc().update("delete from users where id in (:ids)", Map.of("ids", ids));
+            shard.jdbc().batchUpdate(INSERT_TOMBSTONE, tombstones);
+            shard.jdbc().batchUpdate(INSERT_OUTBOX, events);
+        });
+    }
+
+    //Та же схема pooled, что у JPA: nextval резервирует диапазон (value - ID_ALLOCATION_SIZE, value]
+    private synchronized long nextId() {
+        if (nextId == blockEnd) {
+            long blockLast = Objects.requireNonNull(shards.get(0).jdbc().getJdbcOperations()
+                    .queryForObject("select nextval('users_seq')", Long.class));
+            nextId = User.firstIdOfBlock(blockLast);
+            blockEnd = blockLast + 1;
+        }
+        return nextId++;
+    }
+
+    private static SqlParameterSource insertParameters(User user) {
+        return new MapSqlParameterSource()
+                .addValue("id", user.getId())
+                .addValue("name", user.getName())
+                .addValue("email", user.getEmail())
+                .addValue("age", user.getAge())
+                .addValue("createdAt", user.getCreatedAt())
+                .addValue("version", user.getVersion())
+                .addValue("updatedAt", user.getUpdatedAt())
+                .addValue("emailDomain", user.getEmailDomain());
+    }
+
+    //Занятые имена и email лежат в user_keys первого шарда, опрашивать остальные шарды не нужно
+    private static MapSqlParameterSource outboxParameters(UserEventDTO event) {
+        return new MapSqlParameterSource()
+                .addValue("type", event.getType().name())
+                .addValue("userId", event.getUserId())
+                .addValue("name", event.getName())
+                .addValue("email", event.getEmail())
+                .addValue("age", event.getAge())
+                .addValue("version", event.getVersion())
+                .addValue("occurredAt", event.getOccurredAt());
+    }
+
+    @Override
+    public boolean recordsEvents() {
+        return true;
+    }
+
+    @Override
+    public List<String> findExistingNames(Collection<String> names) {
+        return shards.get(0).jdbc().queryForList("select name from user_keys where name in (:names)",
+                Map.of("names", names), String.class);
+    }
+
+    @Override
+    public List<String> findExistingEmails(Collection<String> emails) {
+        return shards.get(0).jdbc().queryForList("select email from user_keys where email in (:emails)",
+                Map.of("emails", emails), String.class);
+    }
+
+    @Override
+    public Optional<UserResponseDTO> findResponseById(Long id) {
+        return shardFor(id).query("select " + COLUMNS + " from users where id = :id", Map.of("id", id),
+                RESPONSE_MAPPER).stream().findFirst();
+    }
+
+    @Override
+    public Optional<UserVersionDTO> findVersionById(Long id) {
+        return shardFor(id).query("select version, updated_at from users where id = :id", Map.of("id", id),
+                (rs, rowNum) -> new UserVersionDTO(rs.getLong("version"),
+                        rs.getObject("updated_at", LocalDateTime.class))).stream().findFirst();
+    }
+
+    //Запрос уходит только в шарды, которым принадлежат id, по одному IN-запросу на шард
+    @Override
+    public List<UserResponseDTO> findResponsesByIds(Collection<Long> ids) {
+        Map<Integer, List<Long>> idsByShard = new HashMap<>();
+        for (Long id : ids) {
+            idsByShard.computeIfAbsent(shardOf(id, shards.size()), shard -> new ArrayList<>()).add(id);
+        }
+        return onShards(idsByShard.keySet(), shard -> shards.get(shard).jdbc().query(
+                "select " + COLUMNS + " from users where id in (:ids)", Map.of("ids", idsByShard.get(shard)),
+                RESPONSE_MAPPER)).stream().flatMap(List::stream).toList();
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return !shardFor(id).queryForList("select id from users where id = :id", Map.of("id", id), Long.class)
+                .isEmpty();
+    }
+
+    @Override
+    public List<UserResponseDTO> findAllResponses() {
+        return mergeById(onAllShards(jdbc -> jdbc.query("select " + COLUMNS + " from users order by id",
+                RESPONSE_MAPPER)), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public UserListVersionDTO findListVersion() {
+        long count = 0;
+        Long maxId = null;
+        Long rowHashSum = null;
+        for (UserListVersionDTO shard : onAllShards(jdbc -> jdbc.getJdbcOperations().queryForObject(
+                "select count(*), max(id), sum(" + UserListVersionDTO.rowHashSql("id", "version") + ") from users",
+                (rs, rowNum) -> new UserListVersionDTO(rs.getLong(1), rs.getObject(2, Long.class),
+                        rs.getObject(3, Long.class))))) {
+            count += shard.count();
+            if (shard.maxId() != null) {
+                maxId = maxId == null ? shard.maxId() : Math.max(maxId, shard.maxId());
+                rowHashSum = (rowHashSum == null ? 0 : rowHashSum) + shard.rowHashSum();
+            }
+        }
+        return new UserListVersionDTO(count, maxId, rowHashSum);
+    }
+
+    //Каждый шард отдаёт не больше limit записей после курсора, поэтому страница собирается
+    //из N * limit строк независимо от размера таблиц
+    @Override
+    public List<UserResponseDTO> findPageAfter(long after, int limit) {
+        return mergeById(onAllShards(jdbc -> jdbc.query(
+                "select " + COLUMNS + " from users where id > :after order by id limit :limit",
+                Map.of("after", after, "limit", limit), RESPONSE_MAPPER)), limit);
+    }
+
+    @Override
+    public Optional<UserResponseDTO> findByName(String name) {
+        return mergeById(onAllShards(jdbc -> jdbc.query("select " + COLUMNS + " from users where name = :name",
+                Map.of("name", name), RESPONSE_MAPPER)), 1).stream().findFirst();
+    }
+
+    @Override
+    public List<UserResponseDTO> findByNormalizedEmail(String email) {
+        return mergeById(onAllShards(jdbc -> jdbc.query(
+                "select " + COLUMNS + " from users where lower(email) = :email",
+                Map.of("email", email), RESPONSE_MAPPER)), Integer.MAX_VALUE);
+    }
+
+    //Страница с номером page требует от каждого шарда первые offset + limit строк: глубокие страницы
+    //обходятся дороже, чем на одной базе
+    @Override
+    public List<UserResponseDTO> search(UserSearchFilter filter, Sort sort, long offset, int limit) {
+        StringBuilder sql = new StringBuilder("select " + COLUMNS + " from users where 1 = 1");
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        if (filter.getNamePrefix() != null) {
+            sql.append(" and name like :namePrefix escape '\\'");
+            parameters.addValue("namePrefix", escapeLike(filter.getNamePrefix()) + "%");
+        }
+        if (filter.getEmail() != null) {
+            sql.append(" and email = :email");
+            parameters.addValue("email", filter.getEmail());
+        }
+        if (filter.getEmailDomain() != null) {
+            sql.append(" and email_domain = :emailDomain");
+            parameters.addValue("emailDomain", filter.getEmailDomain().toLowerCase(Locale.ROOT));
+        }
+        if (filter.getMinAge() != null) {
+            sql.append(" and age >= :minAge");
+            parameters.addValue("minAge", filter.getMinAge());
+        }
+        if (filter.getMaxAge() != null) {
+            sql.append(" and age <= :maxAge");
+            parameters.addValue("maxAge", filter.getMaxAge());
+        }
+        if (filter.getCreatedFrom() != null) {
+            sql.append(" and created_at >= :createdFrom");
+            parameters.addValue("createdFrom", filter.getCreatedFrom());
+        }
+        if (filter.getCreatedTo() != null) {
+            sql.append(" and created_at < :createdTo");
+            parameters.addValue("createdTo", filter.getCreatedTo());
+        }
+
+        List<String> orders = new ArrayList<>();
+        Comparator<UserResponseDTO> comparator = null;
+        for (Sort.Order order : sort) {
+            orders.add(SORT_COLUMNS.get(order.getProperty()) + (order.isAscending() ? " asc" : " desc"));
+            Comparator<UserResponseDTO> byProperty = comparatorFor(order.getProperty());
+            byProperty = order.isAscending() ? byProperty : byProperty.reversed();
+            comparator = comparator == null ? byProperty : comparator.thenComparing(byProperty);
+        }
+        if (sort.getOrderFor("id") == null) {
+            orders.add("id asc");
+            Comparator<UserResponseDTO> byId = Comparator.comparing(UserResponseDTO::getId);
+            comparator = comparator == null ? byId : comparator.thenComparing(byId);
+        }
+        sql.append(" order by ").append(String.join(", ", orders)).append(" limit :limit");
+        parameters.addValue("limit", offset + limit);
+
+        return onAllShards(jdbc -> jdbc.query(sql.toString(), parameters, RESPONSE_MAPPER)).stream()
+                .flatMap(List::stream)
+                .sorted(comparator)
+                .skip(offset)
+                .limit(limit)
+                .toList();
+    }
+
+    private static Comparator<UserResponseDTO> comparatorFor(String property) {
+        return switch (property) {
+            case "id" -> Comparator.comparing(UserResponseDTO::getId);
+            case "name" -> Comparator.comparing(UserResponseDTO::getName);
+            case "email" -> Comparator.comparing(UserResponseDTO::getEmail);
+            case "age" -> Comparator.comparing(UserResponseDTO::getAge);
+            case "createdAt" -> Comparator.comparing(UserResponseDTO::getCreatedAt);
+            default -> throw new IllegalArgumentException("Unsupported sort property: " + property);
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @Override
+    public int updateUser(Long id, String name, String email, String emailDomain, int age, LocalDateTime updatedAt) {
+        return updateWithKeys(id, name, email, age, updatedAt, jdbc -> jdbc.update(
+                "update users set name = :name, email = :email, email_domain = :emailDomain, " +
+                        "age = :age, updated_at = :updatedAt, version = version + 1 where id = :id",
+                updateParameters(id, name, email, emailDomain, age, updatedAt)));
+    }
+
+    @Override
+    public int updateUserIfVersion(Long id, String name, String email, String emailDomain, int age,
+                                   LocalDateTime updatedAt, long version) {
+        return updateWithKeys(id, name, email, age, updatedAt, jdbc -> jdbc.update(
+                "update users set name = :name, email = :email, email_domain = :emailDomain, " +
+                        "age = :age, updated_at = :updatedAt, version = version + 1 where id = :id and version = :version",
+                updateParameters(id, name, email, emailDomain, age, updatedAt).addValue("version", version)));
+    }
+
+    //Новые имя и email занимаются в user_keys первого шарда, как при вставке: транзакция ключей фиксируется после
+    //изменения строки, а если строка не изменилась (пользователя нет или версия устарела), откатывается.
+    //Событие UPDATED с новой версией пишется в транзакции шарда пользователя вместе с изменением
+    private int updateWithKeys(Long id, String name, String email, int age, LocalDateTime updatedAt,
+                               ToIntFunction<NamedParameterJdbcTemplate> update) {
+        Shard keyShard = shards.get(0);
+        Shard shard = shards.get(shardOf(id, shards.size()));
+        return Objects.requireNonNull(keyShard.transactions().execute(status -> {
+            keyShard.jdbc().update("update user_keys set name = :name, email = :email where user_id = :id",
+                    Map.of("name", name, "email", email, "id", id));
+            int updated = Objects.requireNonNull(shard.transactions().execute(inner -> {
+                int rows = update.applyAsInt(shard.jdbc());
+                if (rows > 0) {
+                    Long version = shard.jdbc().queryForObject("select version from users where id = :id",
+                            Map.of("id", id), Long.class);
+                    shard.jdbc().update(INSERT_OUTBOX, outboxParameters(new UserEventDTO(null,
+                            UserEventDTO.Type.UPDATED, id, name, email, age, version, updatedAt)));
+                }
+                return rows;
+            }));
+            if (updated == 0) {
+                status.setRollbackOnly();
+            }
+            return updated;
+        }));
+    }
+
+    private static MapSqlParameterSource updateParameters(Long id, String name, String email, String emailDomain,
+                                                          int age, LocalDateTime updatedAt) {
+        return new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("name", name)
+                .addValue("email", email)
+                .addValue("emailDomain", emailDomain)
+                .addValue("age", age)
+                .addValue("updatedAt", updatedAt);
+    }
+
+    //Надгробие и событие DELETED пишутся в шард пользователя в одной транзакции с удалением. Имя и email освобождаются
+    //в транзакции первого шарда, которая фиксируется после удаления строки
+    @Override
+    public int deleteUser(Long id, LocalDateTime deletedAt) {
+        Shard keyShard = shards.get(0);
+        Shard shard = shards.get(shardOf(id, shards.size()));
+        return Objects.requireNonNull(keyShard.transactions().execute(keys -> {
+            keyShard.jdbc().update("delete from user_keys where user_id = :id", Map.of("id", id));
+            return shard.transactions().execute(status -> {
+                int deleted = shard.jdbc().update("delete from users where id = :id", Map.of("id", id));
+                if (deleted > 0) {
+                    shard.jdbc().update(INSERT_TOMBSTONE, Map.of("id", id, "deletedAt", deletedAt));
+                    shard.jdbc().update(INSERT_OUTBOX, outboxParameters(UserEventDTO.deleted(id, deletedAt)));
+                }
+                return deleted;
+            });
+        }));
+    }
+
+    @Override
+    public List<UserResponseDTO> findChangedAfter(LocalDateTime since, long after, LocalDateTime until, int limit) {
+        return onAllShards(jdbc -> jdbc.query("select " + COLUMNS + " from users " +
+                        "where (updated_at, id) > (:since, :after) and updated_at <= :until " +
+                        "order by updated_at, id limit :limit",
+                changesParameters(since, after, until, limit), RESPONSE_MAPPER)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(UserResponseDTO::getUpdatedAt).thenComparing(UserResponseDTO::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<UserTombstoneDTO> findDeletedAfter(LocalDateTime since, long after, LocalDateTime until, int limit) {
+        return onAllShards(jdbc -> jdbc.query("select user_id, deleted_at from user_tombstones " +
+                        "where (deleted_at, user_id) > (:since, :after) and deleted_at <= :until " +
+                        "order by deleted_at, user_id limit :limit",
+                changesParameters(since, after, until, limit),
+                (rs, rowNum) -> new UserTombstoneDTO(rs.getLong("user_id"),
+                        rs.getObject("deleted_at", LocalDateTime.class)))).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(UserTombstoneDTO::deletedAt).thenComparing(UserTombstoneDTO::userId))
+                .limit(limit)
+                .toList();
+    }
+
+    private static SqlParameterSource changesParameters(LocalDateTime since, long after, LocalDateTime until,
+                                                        int limit) {
+        return new MapSqlParameterSource()
+                .addValue("since", since)
+                .addValue("after", after)
+                .addValue("until", until)
+                .addValue("limit", limit);
+    }
+
+    //Переносит до batchSize событий из user_outbox каждого шарда в журнал user_events первого шарда и возвращает
+    //их число. Строки outbox блокируются, поэтому экземпляры не переносят одно событие одновременно. Транзакция
+    //журнала фиксируется раньше удаления из outbox: если удаление не состоялось, событие перенесут ещё раз,
+    //и уникальный индекс (outbox_shard, outbox_id) не даст записать его дважды
+    public int relayEvents(int batchSize) {
+        Shard journal = shards.get(0);
+        int relayed = 0;
+        for (int index = 0; index < shards.size(); index++) {
+            int source = index;
+            Shard shard = shards.get(source);
+            relayed += Objects.requireNonNull(shard.transactions().execute(status -> {
+                List<UserEventDTO> events = shard.jdbc().query("select " + EVENT_COLUMNS + " from user_outbox " +
+                        "order by id limit :limit for update", Map.of("limit", batchSize), EVENT_MAPPER);
+                if (events.isEmpty()) {
+                    return 0;
+                }
+                journal.transactions().executeWithoutResult(inner -> {
+                    for (UserEventDTO event : events) {
+                        journal.jdbc().update(RELAY_EVENT,
+                                outboxParameters(event).addValue("shard", source).addValue("id", event.getId()));
+                    }
+                });
+                shard.jdbc().update("delete from user_outbox where id in (:ids)",
+                        Map.of("ids", events.stream().map(UserEventDTO::getId).toList()));
+                return events.size();
+            }));
+        }
+        return relayed;
+    }
+
+    //Переносит пользователей, которые после изменения числа шардов принадлежат другому шарду.
+    //Строка сначала копируется (если её ещё нет в целевом шарде), потом удаляется из исходного, поэтому
+    //прерванный перенос можно просто запустить заново. Возвращает число перенесённых пользователей
+    public long rebalance(int batchSize) {
+        //События перенесённых пользователей иначе оказались бы в outbox двух шардов, и порядок их переноса
+        //в журнал не был бы определён
+        int relayed;
+        do {
+            relayed = relayEvents(batchSize);
+        } while (relayed > 0);
+        long moved = 0;
+        for (int source = 0; source < shards.size(); source++) {
+            NamedParameterJdbcTemplate sourceJdbc = shards.get(source).jdbc();
+            long after = 0;
+            List<UserResponseDTO> batch;
+            do {
+                batch = sourceJdbc.query("select " + COLUMNS + " from users where id > :after order by id limit :limit",
+                        Map.of("after", after, "limit", batchSize), RESPONSE_MAPPER);
+                for (UserResponseDTO user : batch) {
+                    int target = shardOf(user.getId(), shards.size());
+                    if (target != source) {
+                        shards.get(target).jdbc().update("insert into users (" + COLUMNS + ", email_domain) " +
+                                "select :id, :name, :email, :age, :createdAt, :version, :updatedAt, :emailDomain " +
+                                "where not exists (select 1 from users where id = :id)", rowParameters(user));
+                        sourceJdbc.update("delete from users where id = :id", Map.of("id", user.getId()));
+                        moved++;
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    after = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == batchSize);
+        }
+        return moved;
+    }
+
+    //Занимает в user_keys имена и email пользователей, записанных до появления таблицы. Если ключей столько же,
+    //сколько пользователей во всех шардах, ничего не делает. Возвращает число занятых ключей
+    public long reserveExistingKeys(int batchSize) {
+        NamedParameterJdbcTemplate keys = shards.get(0).jdbc();
+        long users = onAllShards(jdbc -> jdbc.getJdbcOperations().queryForObject("select count(*) from users",
+                Long.class)).stream().mapToLong(Long::longValue).sum();
+        Long reservedBefore = keys.getJdbcOperations().queryForObject("select count(*) from user_keys", Long.class);
+        if (reservedBefore != null && reservedBefore >= users) {
+            return 0;
+        }
+        long reserved = 0;
+        for (Shard shard : shards) {
+            long after = 0;
+            List<UserResponseDTO> batch;
+            do {
+                batch = shard.jdbc().query(
+                        "select " + COLUMNS + " from users where id > :after order by id limit :limit",
+                        Map.of("after", after, "limit", batchSize), RESPONSE_MAPPER);
+                for (UserResponseDTO user : batch) {
+                    reserved += keys.update("insert into user_keys (user_id, name, email) select :id, :name, :email " +
+                            "where not exists (select 1 from user_keys where user_id = :id)", rowParameters(user));
+                }
+                if (!batch.isEmpty()) {
+                    after = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == batchSize);
+        }
+        return reserved;
+    }
+
+    private static SqlParameterSource rowParameters(UserResponseDTO user) {
+        return new MapSqlParameterSource()
+                .addValue("id", user.getId())
+                .addValue("name", user.getName())
+                .addValue("email", user.getEmail())
+                .addValue("age", user.getAge())
+                .addValue("createdAt", user.getCreatedAt())
+                .addValue("version", user.getVersion())
+                .addValue("updatedAt", user.getUpdatedAt())
+                .addValue("emailDomain", User.emailDomain(user.getEmail()));
+    }
+
+    //Закрывает и пулы соединений шардов
+    @Override
+    public void close() throws IOException {
+        fanOut.close();
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private NamedParameterJdbcTemplate shardFor(long id) {
+        return shards.get(shardOf(id, shards.size())).jdbc();
+    }
+
+    private <T> List<T> onAllShards(Function<NamedParameterJdbcTemplate, T> query) {
+        return onShards(IntStream.range(0, shards.size()).boxed().toList(),
+                shard -> query.apply(shards.get(shard).jdbc()));
+    }
+
+    private <T> List<T> onShards(Collection<Integer> shardIndexes, IntFunction<T> query) {
+        List<Future<T>> futures = new ArrayList<>(shardIndexes.size());
+        for (int shard : shardIndexes) {
+            futures.add(fanOut.submit(() -> query.apply(shard)));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while querying shards", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    //Списки каждого шарда уже упорядочены по id; limit ограничивает размер результата
+    private static List<UserResponseDTO> mergeById(List<List<UserResponseDTO>> perShard, int limit) {
+        return perShard.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(UserResponseDTO::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    private record Shard(NamedParameterJdbcTemplate jdbc, TransactionTemplate transactions) {
+    }
+}
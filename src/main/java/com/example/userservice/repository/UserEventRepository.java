@@ -0,0 +1,55 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserEventDTO;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//Журнал изменений user_events. Запись идёт через JdbcTemplate: внутри транзакции JPA он использует то же
+//соединение, а id событий назначает база, поэтому вставки объединяются в один JDBC-пакет
+@Repository
+@Profile("!reactive")
+public class UserEventRepository {
+    private static final String COLUMNS = "id, type, user_id, name, email, age, version, occurred_at";
+    private static final RowMapper<UserEventDTO> EVENT_MAPPER = (rs, rowNum) -> new UserEventDTO(
+            rs.getLong("id"),
+            UserEventDTO.Type.valueOf(rs.getString("type")),
+            rs.getLong("user_id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getObject("age", Integer.class),
+            rs.getObject("version", Long.class),
+            rs.getObject("occurred_at", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserEventRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertAll(List<UserEventDTO> events) {
+        jdbcTemplate.batchUpdate("insert into user_events (type, user_id, name, email, age, version, occurred_at) " +
+                        "values (?, ?, ?, ?, ?, ?, ?)", events, events.size(), (statement, event) -> {
+            statement.setString(1, event.getType().name());
+            statement.setLong(2, event.getUserId());
+            statement.setString(3, event.getName());
+            statement.setString(4, event.getEmail());
+            statement.setObject(5, event.getAge());
+            statement.setObject(6, event.getVersion());
+            statement.setObject(7, event.getOccurredAt());
+        });
+    }
+
+    public long findLastId() {
+        return jdbcTemplate.queryForObject("select coalesce(max(id), 0) from user_events", Long.class);
+    }
+
+    public List<UserEventDTO> findAfter(long after, int limit) {
+        return jdbcTemplate.query("select " + COLUMNS + " from user_events where id > ? order by id limit ?",
+                EVENT_MAPPER, after, limit);
+    }
+}
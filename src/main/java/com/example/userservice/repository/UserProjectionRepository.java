@@ -0,0 +1,42 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserListVersionDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserTombstoneDTO;
+import com.example.userservice.dto.UserVersionDTO;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+//Чтение сразу в UserResponseDTO: сущности не попадают в persistence context, поэтому не создаются
+//снимки для dirty checking и нечего проверять при flush
+public interface UserProjectionRepository {
+    Optional<UserResponseDTO> findResponseById(Long id);
+
+    //Пользователи с указанными id одним запросом WHERE id IN (...), в произвольном порядке
+    List<UserResponseDTO> findResponsesByIds(Collection<Long> ids);
+
+    List<UserResponseDTO> findAllResponses();
+
+    Optional<UserVersionDTO> findVersionById(Long id);
+
+    UserListVersionDTO findListVersion();
+
+    //Keyset-пагинация: не более limit пользователей с id больше after
+    List<UserResponseDTO> findPageAfter(long after, int limit);
+
+    Optional<UserResponseDTO> findByName(String name);
+
+    //Email сравнивается без учёта регистра по индексу users_email_lower_idx. Уникальность гарантируется
+    //только для точного значения, поэтому при совпадении без учёта регистра результатов может быть несколько
+    List<UserResponseDTO> findByNormalizedEmail(String email);
+
+    //Keyset-пагинация по индексу users_updated_at_idx: не более limit пользователей с (updated_at, id)
+    //больше (since, after) и updated_at не позже until, в порядке (updated_at, id)
+    List<UserResponseDTO> findChangedAfter(LocalDateTime since, long after, LocalDateTime until, int limit);
+
+    //То же для надгробий удалённых пользователей по (deleted_at, user_id)
+    List<UserTombstoneDTO> findDeletedAfter(LocalDateTime since, long after, LocalDateTime until, int limit);
+}
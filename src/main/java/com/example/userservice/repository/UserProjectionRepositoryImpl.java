@@ -0,0 +1,120 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserListVersionDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserTombstoneDTO;
+import com.example.userservice.dto.UserVersionDTO;
+import jakarta.persistence.EntityManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+//Запросы выполняются через EntityManager напрямую, а не через @Query: обвязка методов Spring Data
+//на каждый вызов выделяла в несколько раз больше памяти, чем сам запрос (см. UserReadBenchmark)
+class UserProjectionRepositoryImpl implements UserProjectionRepository {
+    private static final String SELECT_RESPONSE = "select new com.example.userservice.dto.UserResponseDTO(" +
+            "u.id, u.name, u.email, u.age, u.createdAt, u.version, u.updatedAt) from User u ";
+
+    private final EntityManager entityManager;
+
+    UserProjectionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Optional<UserResponseDTO> findResponseById(Long id) {
+        return entityManager.createQuery(SELECT_RESPONSE + "where u.id = :id", UserResponseDTO.class)
+                .setParameter("id", id)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<UserResponseDTO> findResponsesByIds(Collection<Long> ids) {
+        return entityManager.createQuery(SELECT_RESPONSE + "where u.id in :ids", UserResponseDTO.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    @Override
+    public List<UserResponseDTO> findAllResponses() {
+        return entityManager.createQuery(SELECT_RESPONSE + "order by u.id", UserResponseDTO.class)
+                .getResultList();
+    }
+
+    @Override
+    public Optional<UserVersionDTO> findVersionById(Long id) {
+        return entityManager.createQuery("select new com.example.userservice.dto.UserVersionDTO(u.version, u.updatedAt) " +
+                        "from User u where u.id = :id", UserVersionDTO.class)
+                .setParameter("id", id)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public UserListVersionDTO findListVersion() {
+        return entityManager.createQuery("select new com.example.userservice.dto.UserListVersionDTO(" +
+                        "count(u), max(u.id), sum(" + UserListVersionDTO.rowHashSql("u.id", "u.version") + ")) " +
+                        "from User u", UserListVersionDTO.class)
+                .getSingleResult();
+    }
+
+    @Override
+    public List<UserResponseDTO> findPageAfter(long after, int limit) {
+        return entityManager.createQuery(SELECT_RESPONSE + "where u.id > :after order by u.id", UserResponseDTO.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Optional<UserResponseDTO> findByName(String name) {
+        return entityManager.createQuery(SELECT_RESPONSE + "where u.name = :name", UserResponseDTO.class)
+                .setParameter("name", name)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<UserResponseDTO> findByNormalizedEmail(String email) {
+        return entityManager.createQuery(SELECT_RESPONSE + "where lower(u.email) = :email order by u.id",
+                        UserResponseDTO.class)
+                .setParameter("email", email)
+                .getResultList();
+    }
+
+    @Override
+    public List<UserResponseDTO> findChangedAfter(LocalDateTime since, long after, LocalDateTime until, int limit) {
+        return entityManager.createQuery(SELECT_RESPONSE + "where (u.updatedAt, u.id) > (:since, :after) " +
+                        "and u.updatedAt <= :until order by u.updatedAt, u.id", UserResponseDTO.class)
+                .setParameter("since", since)
+                .setParameter("after", after)
+                .setParameter("until", until)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    //user_tombstones не отображена на сущность, поэтому запрос нативный
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<UserTombstoneDTO> findDeletedAfter(LocalDateTime since, long after, LocalDateTime until, int limit) {
+        List<Object[]> rows = entityManager.createNativeQuery("select user_id, deleted_at from user_tombstones " +
+                        "where (deleted_at, user_id) > (:since, :after) and deleted_at <= :until " +
+                        "order by deleted_at, user_id")
+                .setParameter("since", since)
+                .setParameter("after", after)
+                .setParameter("until", until)
+                .setMaxResults(limit)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new UserTombstoneDTO(((Number) row[0]).longValue(),
+                        ((Timestamp) row[1]).toLocalDateTime()))
+                .toList();
+    }
+}
@@ -2,6 +2,58 @@ package com.example.userservice.repository;
 
 import com.example.userservice.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface UserRepository extends JpaRepository<User, Long> {}
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserProjectionRepository,
+        UserSearchRepository, UserStore {
+    @Override
+    default List<User> insertAll(List<User> users) {
+        List<User> saved = saveAll(users);
+        flush();
+        return saved;
+    }
+
+    @Query("select u.name from User u where u.name in :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    //Обновление и удаление одним запросом; число затронутых строк показывает, существовал ли пользователь
+    @Modifying
+    @Query("update User u set u.name = :name, u.email = :email, u.emailDomain = :emailDomain, u.age = :age, " +
+            "u.updatedAt = :updatedAt, u.version = u.version + 1 where u.id = :id")
+    int updateUser(@Param("id") Long id, @Param("name") String name, @Param("email") String email,
+                   @Param("emailDomain") String emailDomain, @Param("age") int age,
+                   @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Query("update User u set u.name = :name, u.email = :email, u.emailDomain = :emailDomain, u.age = :age, " +
+            "u.updatedAt = :updatedAt, u.version = u.version + 1 where u.id = :id and u.version = :version")
+    int updateUserIfVersion(@Param("id") Long id, @Param("name") String name, @Param("email") String email,
+                            @Param("emailDomain") String emailDomain, @Param("age") int age,
+                            @Param("updatedAt") LocalDateTime updatedAt, @Param("version") long version);
+
+    @Override
+    default int deleteUser(Long id, LocalDateTime deletedAt) {
+        int deleted = deleteUserRow(id);
+        if (deleted > 0) {
+            insertTombstone(id, deletedAt);
+        }
+        return deleted;
+    }
+
+    @Modifying
+    @Query("delete from User u where u.id = :id")
+    int deleteUserRow(@Param("id") Long id);
+
+    @Modifying
+    @Query(value = "insert into user_tombstones (user_id, deleted_at) values (:id, :deletedAt)", nativeQuery = true)
+    int insertTombstone(@Param("id") Long id, @Param("deletedAt") LocalDateTime deletedAt);
+}
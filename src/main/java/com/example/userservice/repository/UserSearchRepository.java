@@ -0,0 +1,11 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserSearchFilter;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface UserSearchRepository {
+    List<UserResponseDTO> search(UserSearchFilter filter, Sort sort, long offset, int limit);
+}
@@ -0,0 +1,79 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserSearchFilter;
+import com.example.userservice.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+//Поиск с набором необязательных условий. Каждое условие опирается на индекс из миграции V3__add_search_indexes
+class UserSearchRepositoryImpl implements UserSearchRepository {
+    private final EntityManager entityManager;
+
+    UserSearchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<UserResponseDTO> search(UserSearchFilter filter, Sort sort, long offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserResponseDTO> query = cb.createQuery(UserResponseDTO.class);
+        Root<User> user = query.from(User.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getNamePrefix() != null) {
+            predicates.add(cb.like(user.get("name"), escapeLike(filter.getNamePrefix()) + "%", '\\'));
+        }
+        if (filter.getEmail() != null) {
+            predicates.add(cb.equal(user.get("email"), filter.getEmail()));
+        }
+        if (filter.getEmailDomain() != null) {
+            predicates.add(cb.equal(user.get("emailDomain"), filter.getEmailDomain().toLowerCase(Locale.ROOT)));
+        }
+        if (filter.getMinAge() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(user.get("age"), filter.getMinAge()));
+        }
+        if (filter.getMaxAge() != null) {
+            predicates.add(cb.lessThanOrEqualTo(user.get("age"), filter.getMaxAge()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(user.get("createdAt"), filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            predicates.add(cb.lessThan(user.get("createdAt"), filter.getCreatedTo()));
+        }
+
+        //id в конце сортировки делает порядок однозначным, иначе страницы могут пересекаться
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(order.isAscending()
+                    ? cb.asc(user.get(order.getProperty()))
+                    : cb.desc(user.get(order.getProperty())));
+        }
+        if (sort.getOrderFor("id") == null) {
+            orders.add(cb.asc(user.get("id")));
+        }
+
+        query.select(cb.construct(UserResponseDTO.class, user.get("id"), user.get("name"), user.get("email"),
+                        user.get("age"), user.get("createdAt"), user.get("version"), user.get("updatedAt")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(orders);
+        return entityManager.createQuery(query)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.model.User;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+//Хранилище пользователей, с которым работают UserService и UserBatchWriter. Обычно это JPA-репозиторий
+//UserRepository над одной базой, при users.sharding.urls - ShardedUserRepository над несколькими,
+//при users.storage=memory - InMemoryUserRepository без базы
+public interface UserStore extends UserProjectionRepository, UserSearchRepository {
+    //Вставляет новых пользователей сразу, не откладывая INSERT до конца транзакции, и выставляет им id.
+    //Занятые имя или email приводят к DataIntegrityViolationException
+    List<User> insertAll(List<User> users);
+
+    List<String> findExistingNames(Collection<String> names);
+
+    List<String> findExistingEmails(Collection<String> emails);
+
+    boolean existsById(Long id);
+
+    int updateUser(Long id, String name, String email, String emailDomain, int age, LocalDateTime updatedAt);
+
+    int updateUserIfVersion(Long id, String name, String email, String emailDomain, int age,
+                            LocalDateTime updatedAt, long version);
+
+    //Удаляет пользователя и оставляет надгробие с deletedAt для GET /api/users/changes
+    int deleteUser(Long id, LocalDateTime deletedAt);
+
+    //true, если хранилище само пишет события журнала в транзакции изменения, и UserEventService их не пишет
+    default boolean recordsEvents() {
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.exception.UserVersionConflictException;
+import com.example.userservice.repository.ReactiveUserRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//Те же операции и та же семантика ответов, что и у UserService, но без блокирующих вызовов
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+    private final ReactiveUserRepository userRepository;
+
+    public ReactiveUserService(ReactiveUserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public Mono<UserResponseDTO> createUser(UserRequestDTO requestDTO) {
+        return userRepository.nextId().flatMap(id -> {
+            LocalDateTime now = LocalDateTime.now();
+            UserResponseDTO user = new UserResponseDTO(id, requestDTO.getName(), requestDTO.getEmail(),
+                    requestDTO.getAge(), now, 0L, now);
+            return userRepository.insert(user).thenReturn(user);
+        });
+    }
+
+    public Mono<UserResponseDTO> getUserById(Long id) {
+        return userRepository.findById(id);
+    }
+
+    public Flux<UserResponseDTO> getAllUsers() {
+        return userRepository.findAll();
+    }
+
+    public Mono<UserPageDTO> getUsersPage(int limit, Long after) {
+        return userRepository.findPageAfter(after == null ? 0L : after, limit + 1)
+                .collectList()
+                .map(users -> {
+                    if (users.size() <= limit) {
+                        return new UserPageDTO(users, null);
+                    }
+                    List<UserResponseDTO> page = users.subList(0, limit);
+                    return new UserPageDTO(page, page.get(limit - 1).getId());
+                });
+    }
+
+    public Mono<Boolean> updateUser(Long id, UserRequestDTO requestDTO) {
+        if (requestDTO.getVersion() == null) {
+            return userRepository.updateUser(id, requestDTO.getName(), requestDTO.getEmail(), requestDTO.getAge())
+                    .map(updated -> updated > 0);
+        }
+        return userRepository.updateUserIfVersion(id, requestDTO.getName(), requestDTO.getEmail(),
+                        requestDTO.getAge(), requestDTO.getVersion())
+                .flatMap(updated -> {
+                    if (updated > 0) {
+                        return Mono.just(true);
+                    }
+                    return userRepository.existsById(id).flatMap(exists -> exists
+                            ? Mono.error(new UserVersionConflictException(id))
+                            : Mono.just(false));
+                });
+    }
+
+    public Mono<Boolean> deleteUser(Long id) {
+        return userRepository.deleteUser(id).map(deleted -> deleted > 0);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserEventDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.model.User;
+import com.example.userservice.repository.UserStore;
+import jakarta.persistence.EntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.context.annotation.Profile;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Component
+@Profile("!reactive")
+public class UserBatchWriter {
+    static final String NAME_TAKEN = "Name is already taken";
+    static final String EMAIL_TAKEN = "Email is already taken";
+
+    private final UserStore userStore;
+    private final UserMapper userMapper;
+    private final UserEventService userEventService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public UserBatchWriter(UserStore userStore, UserMapper userMapper, UserEventService userEventService,
+                           EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.userStore = userStore;
+        this.userMapper = userMapper;
+        this.userEventService = userEventService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    //Вставляет уже провалидированных пользователей одной транзакцией с JDBC-пакетами.
+    //Результаты возвращаются в том же порядке, что и запросы
+    public List<UserWriteOutcome> insertAll(List<UserRequestDTO> requests) {
+        UserWriteOutcome[] outcomes = new UserWriteOutcome[requests.size()];
+        rejectDuplicates(requests, outcomes);
+
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == null) {
+                pending.add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return Arrays.asList(outcomes);
+        }
+
+        try {
+            List<UserResponseDTO> created = insertInTransaction(pending.stream().map(requests::get).toList());
+            for (int i = 0; i < pending.size(); i++) {
+                outcomes[pending.get(i)] = UserWriteOutcome.created(created.get(i));
+            }
+        } catch (DataIntegrityViolationException e) {
+            //Кто-то успел занять имя или email между проверкой и вставкой: повторяем построчно,
+            //чтобы отклонить только конфликтующие записи
+            for (int i : pending) {
+                outcomes[i] = insertOne(requests.get(i));
+            }
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    private void rejectDuplicates(List<UserRequestDTO> requests, UserWriteOutcome[] outcomes) {
+        Set<String> names = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (UserRequestDTO request : requests) {
+            names.add(request.getName());
+            emails.add(request.getEmail());
+        }
+        Set<String> takenNames = new HashSet<>(userStore.findExistingNames(names));
+        Set<String> takenEmails = new HashSet<>(userStore.findExistingEmails(emails));
+
+        //Повтор внутри пакета отклоняется так же, как совпадение с уже существующим пользователем. Имя и email
+        //занимаются только принятым запросом: отклонённый из-за email не должен отнимать имя у следующих
+        for (int i = 0; i < requests.size(); i++) {
+            UserRequestDTO request = requests.get(i);
+            Map<String, String> errors = new HashMap<>();
+            if (takenNames.contains(request.getName())) {
+                errors.put("name", NAME_TAKEN);
+            }
+            if (takenEmails.contains(request.getEmail())) {
+                errors.put("email", EMAIL_TAKEN);
+            }
+            if (errors.isEmpty()) {
+                takenNames.add(request.getName());
+                takenEmails.add(request.getEmail());
+            } else {
+                outcomes[i] = UserWriteOutcome.failed(errors);
+            }
+        }
+    }
+
+    private List<UserResponseDTO> insertInTransaction(List<UserRequestDTO> requests) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<User> users = new ArrayList<>(requests.size());
+            for (UserRequestDTO request : requests) {
+                User user = userMapper.toEntity(request);
+                user.setCreatedAt(now);
+                users.add(user);
+            }
+            userStore.insertAll(users);
+            List<UserResponseDTO> created = users.stream().map(userMapper::toResponseDTO).toList();
+            userEventService.record(created.stream()
+                    .map(user -> UserEventDTO.of(UserEventDTO.Type.CREATED, user, now))
+                    .toList());
+            //Вставленные сущности больше не нужны, не даём им копиться в persistence context
+            entityManager.clear();
+            return created;
+        });
+    }
+
+    private UserWriteOutcome insertOne(UserRequestDTO request) {
+        try {
+            return UserWriteOutcome.created(insertInTransaction(List.of(request)).get(0));
+        } catch (DataIntegrityViolationException e) {
+            Map<String, String> errors = takenKeys(request);
+            if (errors.isEmpty()) {
+                throw e;
+            }
+            return UserWriteOutcome.failed(errors);
+        }
+    }
+
+    //Какие из имени и email запроса уже заняты: по ним нарушение уникальности превращается в ошибки полей
+    Map<String, String> takenKeys(UserRequestDTO request) {
+        Map<String, String> errors = new HashMap<>();
+        if (!userStore.findExistingNames(List.of(request.getName())).isEmpty()) {
+            errors.put("name", NAME_TAKEN);
+        }
+        if (!userStore.findExistingEmails(List.of(request.getEmail())).isEmpty()) {
+            errors.put("email", EMAIL_TAKEN);
+        }
+        return errors;
+    }
+}
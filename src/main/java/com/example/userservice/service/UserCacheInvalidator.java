@@ -0,0 +1,102 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.CacheConfig;
+import com.example.userservice.config.TwoTierCache;
+import com.example.userservice.dto.UserEventDTO;
+import com.example.userservice.dto.UserEventPageDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+//Рассылка сбросов кэша между экземплярами (users.cache.invalidation.enabled=true). Каждое создание, изменение
+//и удаление пользователя записывается в журнал user_events в своей транзакции, поэтому журнал служит шиной:
+//фоновый поток каждого экземпляра читает его и сбрасывает ближний уровень кэша users для изменённых id.
+//Сообщение не теряется при сбое экземпляра, а собственные изменения сбрасываются повторно уже после фиксации
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.cache.invalidation.enabled", havingValue = "true")
+public class UserCacheInvalidator {
+    private static final Logger log = LoggerFactory.getLogger(UserCacheInvalidator.class);
+    private static final int BATCH_SIZE = 1000;
+    //Не дольше этого поток ждёт новых событий, после чего проверяет, не пора ли остановиться
+    private static final Duration POLL_WAIT = Duration.ofSeconds(1);
+
+    private final UserEventService userEventService;
+    private final Cache usersCache;
+    private final Counter invalidations;
+    private final Thread reader;
+    private volatile boolean running;
+    private volatile long position;
+
+    public UserCacheInvalidator(UserEventService userEventService, CacheManager cacheManager,
+                                MeterRegistry meterRegistry) {
+        this.userEventService = userEventService;
+        this.usersCache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+        this.invalidations = meterRegistry.counter("users.cache.invalidations");
+        this.reader = Thread.ofPlatform().name("user-cache-invalidation").daemon().unstarted(this::read);
+    }
+
+    //Кэш при запуске пуст, поэтому читать журнал достаточно с его текущего конца
+    @PostConstruct
+    void start() {
+        position = userEventService.getLastEventId();
+        running = true;
+        reader.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        reader.join();
+    }
+
+    //Позиция в журнале, до которой сбросы уже применены
+    public long getPosition() {
+        return position;
+    }
+
+    //Поток не прерывается: прерывание во время JDBC-вызова может закрыть соединение
+    private void read() {
+        while (running) {
+            try {
+                UserEventPageDTO page = userEventService.getEvents(position, BATCH_SIZE, POLL_WAIT);
+                for (UserEventDTO event : page.getItems()) {
+                    evict(event.getUserId());
+                }
+                position = page.getNextOffset();
+            } catch (RuntimeException e) {
+                //Пока журнал недоступен, кэш живёт только по времени жизни записей
+                log.warn("Failed to read user events for cache invalidation", e);
+                sleep();
+            }
+        }
+    }
+
+    private void evict(Long userId) {
+        if (usersCache instanceof TwoTierCache twoTierCache) {
+            twoTierCache.evictNear(userId);
+        } else {
+            usersCache.evict(userId);
+        }
+        invalidations.increment();
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(POLL_WAIT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.userservice.service;
+
+import com.example.userservice.repository.ShardedUserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+//При шардировании события пишутся в user_outbox шарда пользователя в транзакции изменения. Фоновый поток
+//каждого экземпляра переносит их в общий журнал user_events, который читают GET /api/users/events
+//и UserCacheInvalidator
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.sharding.urls")
+public class UserEventRelay {
+    private static final Logger log = LoggerFactory.getLogger(UserEventRelay.class);
+    private static final int BATCH_SIZE = 1000;
+    //Пауза, когда переносить нечего: на столько событие может отстать от изменения
+    private static final Duration IDLE_WAIT = Duration.ofMillis(100);
+
+    private final ShardedUserRepository shardedUserRepository;
+    private final UserEventService userEventService;
+    private final Thread relay;
+    private volatile boolean running;
+
+    public UserEventRelay(ShardedUserRepository shardedUserRepository, UserEventService userEventService) {
+        this.shardedUserRepository = shardedUserRepository;
+        this.userEventService = userEventService;
+        this.relay = Thread.ofPlatform().name("user-event-relay").daemon().unstarted(this::relay);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        relay.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        relay.join();
+    }
+
+    //Поток не прерывается: прерывание во время JDBC-вызова может закрыть соединение
+    private void relay() {
+        while (running) {
+            try {
+                if (shardedUserRepository.relayEvents(BATCH_SIZE) > 0) {
+                    userEventService.signal();
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                //События остаются в outbox и будут перенесены, когда шард снова станет доступен
+                log.warn("Failed to relay user events from shards", e);
+            }
+            sleep();
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(IDLE_WAIT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
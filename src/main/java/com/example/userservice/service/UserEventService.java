@@ -0,0 +1,125 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserEventDTO;
+import com.example.userservice.dto.UserEventPageDTO;
+import com.example.userservice.repository.UserEventRepository;
+import com.example.userservice.repository.UserStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Журнал изменений пользователей для клиентов, которые синхронизируются инкрементально вместо выгрузки /all
+@Service
+@Profile("!reactive")
+public class UserEventService {
+    //Ожидающие запросы перечитывают журнал не реже этого интервала: события, записанные другими
+    //экземплярами сервиса, сюда не сигнализируются
+    private static final long RECHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    //Сколько помнить замеченный пропуск: отстающий клиент, дошедший до старого пропуска, не ждёт его заново
+    private static final long GAP_RETENTION_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final UserEventRepository userEventRepository;
+    private final UserStore userStore;
+    private final Duration gapTimeout;
+    //ReentrantLock, а не synchronized: ожидание в виртуальном потоке не должно занимать поток-носитель
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition recorded = lock.newCondition();
+    //Первый отсутствующий id пропуска -> System.nanoTime(), когда пропуск заметили впервые
+    private final ConcurrentMap<Long, Long> gapsSeenAt = new ConcurrentHashMap<>();
+
+    public UserEventService(UserEventRepository userEventRepository, UserStore userStore,
+                            @Value("${users.events.gap-timeout:2s}") Duration gapTimeout) {
+        this.userEventRepository = userEventRepository;
+        this.userStore = userStore;
+        this.gapTimeout = gapTimeout;
+    }
+
+    //Вызывается внутри транзакции изменения; ожидающие запросы будятся только после её фиксации.
+    //Шардированное хранилище пишет события само, в транзакции шарда, и в журнал их переносит UserEventRelay
+    public void record(List<UserEventDTO> events) {
+        if (events.isEmpty() || userStore.recordsEvents()) {
+            return;
+        }
+        userEventRepository.insertAll(events);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    signal();
+                }
+            });
+        } else {
+            signal();
+        }
+    }
+
+    //Позиция последнего записанного события: чтение с неё отдаст только события, записанные позже
+    public long getLastEventId() {
+        return userEventRepository.findLastId();
+    }
+
+    //События с id больше after. Если их нет, запрос ждёт новых не дольше wait (long polling)
+    public UserEventPageDTO getEvents(long after, int limit, Duration wait) {
+        long deadline = System.nanoTime() + wait.toNanos();
+        while (true) {
+            List<UserEventDTO> events = visibleEvents(after, limit);
+            long remaining = deadline - System.nanoTime();
+            if (!events.isEmpty() || remaining <= 0) {
+                long nextOffset = events.isEmpty() ? after : events.get(events.size() - 1).getId();
+                return new UserEventPageDTO(events, nextOffset);
+            }
+            lock.lock();
+            try {
+                recorded.awaitNanos(Math.min(remaining, RECHECK_NANOS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new UserEventPageDTO(List.of(), after);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //id выдаются при вставке, а видны события после фиксации, поэтому более позднее событие может стать видимым
+    //раньше предыдущего. Выдача обрывается перед пропуском в id, пока с момента, когда его заметили, не прошло
+    //gapTimeout: иначе клиент сдвинул бы позицию дальше и потерял событие. Более старый пропуск считается
+    //откатом транзакции. Отсчёт идёт от наблюдения, а не от occurred_at следующего события: оно может быть
+    //старым, если клиент отстал, хотя пропуск появился только что. Событие транзакции, которая держит id
+    //дольше gapTimeout, всё равно может быть пропущено
+    private List<UserEventDTO> visibleEvents(long after, int limit) {
+        List<UserEventDTO> events = userEventRepository.findAfter(after, limit);
+        long now = System.nanoTime();
+        List<UserEventDTO> visible = new ArrayList<>(events.size());
+        long expected = after + 1;
+        for (UserEventDTO event : events) {
+            if (event.getId() != expected && now - gapsSeenAt.computeIfAbsent(expected, id -> now)
+                    < gapTimeout.toNanos()) {
+                break;
+            }
+            visible.add(event);
+            expected = event.getId() + 1;
+        }
+        gapsSeenAt.values().removeIf(seenAt -> now - seenAt > GAP_RETENTION_NANOS);
+        return visible;
+    }
+
+    void signal() {
+        lock.lock();
+        try {
+            recorded.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
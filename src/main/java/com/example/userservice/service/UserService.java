@@ -1,60 +1,472 @@
 package com.example.userservice.service;
 
 
+import com.example.userservice.config.CacheConfig;
+import com.example.userservice.config.MetricsConfig;
+import com.example.userservice.config.ReadReplicaRoutingDataSource;
+import com.example.userservice.dto.BulkCreateResultDTO;
+import com.example.userservice.dto.BulkItemResultDTO;
+import com.example.userservice.dto.UserBatchDTO;
+import com.example.userservice.dto.UserChangesDTO;
+import com.example.userservice.dto.UserEventDTO;
+import com.example.userservice.dto.UserListVersionDTO;
+import com.example.userservice.dto.UserPageDTO;
 import com.example.userservice.dto.UserRequestDTO;
 import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserSearchFilter;
+import com.example.userservice.dto.UserSearchPageDTO;
+import com.example.userservice.dto.UserTombstoneDTO;
+import com.example.userservice.dto.UserVersionDTO;
+import com.example.userservice.exception.UserAlreadyExistsException;
+import com.example.userservice.exception.UserEmailAmbiguousException;
+import com.example.userservice.exception.UserVersionConflictException;
 import com.example.userservice.mapper.UserMapper;
 import com.example.userservice.model.User;
-import com.example.userservice.repository.UserRepository;
+import com.example.userservice.repository.UserStore;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.context.annotation.Profile;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.function.Function;
 
 @Service
+@Profile("!reactive")
 public class UserService {
-    private final UserRepository userRepository;
+    static final int BULK_CHUNK_SIZE = 1000;
+    //Наибольшее число id в одном IN-запросе getUsersByIds
+    static final int BATCH_GET_CHUNK_SIZE = 500;
+
+    private final UserStore userStore;
     private final UserMapper userMapper;
+    private final UserBatchWriter userBatchWriter;
+    private final UserWriteQueue userWriteQueue;
+    private final UserEventService userEventService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Validator validator;
+    private final Cache usersCache;
+    private final Cache userIdsByEmailCache;
+    private final Cache userIdsByNameCache;
+    private final Timer mappingTimer;
+    private final SingleFlight<Long, Optional<UserResponseDTO>> userLoads;
+    private final Duration changesLag;
+    private final boolean readReplicas;
 
-    public UserService(UserRepository userRepository, UserMapper userMapper) {
-        this.userRepository = userRepository;
+    public UserService(UserStore userStore, UserMapper userMapper, UserBatchWriter userBatchWriter,
+                       ObjectProvider<UserWriteQueue> userWriteQueue, UserEventService userEventService,
+                       PlatformTransactionManager transactionManager, Validator validator, CacheManager cacheManager,
+                       MeterRegistry meterRegistry, @Value("${users.changes.lag:2s}") Duration changesLag,
+                       ObjectProvider<ReadReplicaRoutingDataSource> readReplicaRouting) {
+        this.userStore = userStore;
         this.userMapper = userMapper;
+        this.userBatchWriter = userBatchWriter;
+        //Очередь есть только при users.write-behind.enabled=true, иначе каждый пользователь вставляется сразу
+        this.userWriteQueue = userWriteQueue.getIfAvailable();
+        this.userEventService = userEventService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.validator = validator;
+        this.usersCache = cacheManager.getCache(CacheConfig.USERS_CACHE);
+        this.userIdsByEmailCache = cacheManager.getCache(CacheConfig.USER_IDS_BY_EMAIL_CACHE);
+        this.userIdsByNameCache = cacheManager.getCache(CacheConfig.USER_IDS_BY_NAME_CACHE);
+        this.mappingTimer = meterRegistry.timer(MetricsConfig.MAPPING_TIMER);
+        this.userLoads = new SingleFlight<>(meterRegistry.counter(MetricsConfig.COALESCED_COUNTER, "operation", "get"));
+        this.changesLag = changesLag;
+        this.readReplicas = readReplicaRouting.getIfAvailable() != null;
+    }
+
+    public static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static String normalizeName(String name) {
+        return name.trim();
     }
 
+    @CachePut(cacheNames = CacheConfig.USERS_CACHE, key = "#result.id")
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "create"})
     public UserResponseDTO createUser(UserRequestDTO requestDTO) {
-        User user = userMapper.toEntity(requestDTO);
+        if (userWriteQueue != null) {
+            UserWriteOutcome outcome = userWriteQueue.submit(requestDTO);
+            if (!outcome.isCreated()) {
+                throw new UserAlreadyExistsException(outcome.errors());
+            }
+            return outcome.user();
+        }
+        User user = mappingTimer.record(() -> userMapper.toEntity(requestDTO));
         user.setCreatedAt(LocalDateTime.now());
-        User savedUser = userRepository.save(user);
-        return userMapper.toResponseDTO(savedUser);
+        //Транзакция открывается только здесь, а не на всём методе: при отложенной записи
+        //ожидание очереди не должно удерживать соединение
+        try {
+            return transactionTemplate.execute(status -> {
+                User savedUser = userStore.insertAll(List.of(user)).get(0);
+                UserResponseDTO created = mappingTimer.record(() -> userMapper.toResponseDTO(savedUser));
+                userEventService.record(List.of(
+                        UserEventDTO.of(UserEventDTO.Type.CREATED, created, savedUser.getCreatedAt())));
+                return created;
+            });
+        } catch (DataIntegrityViolationException e) {
+            //Тот же ответ 409 с ошибками полей, что и при отложенной записи
+            Map<String, String> errors = userBatchWriter.takenKeys(requestDTO);
+            if (errors.isEmpty()) {
+                throw e;
+            }
+            throw new UserAlreadyExistsException(errors);
+        }
+    }
+
+    //Запросы читаются по мере поступления и вставляются порциями по BULK_CHUNK_SIZE,
+    //поэтому на вход можно подавать как готовый список, так и поток из тела запроса
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "bulk-create"})
+    public BulkCreateResultDTO createUsers(Iterator<UserRequestDTO> requests) {
+        List<BulkItemResultDTO> items = new ArrayList<>();
+        List<UserRequestDTO> chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+        List<Integer> chunkIndexes = new ArrayList<>(BULK_CHUNK_SIZE);
+        int index = 0;
+        while (requests.hasNext()) {
+            UserRequestDTO request = requests.next();
+            Map<String, String> errors = validate(request);
+            if (errors.isEmpty()) {
+                chunk.add(request);
+                chunkIndexes.add(index);
+            } else {
+                items.add(BulkItemResultDTO.failed(index, errors));
+            }
+            index++;
+            if (chunk.size() == BULK_CHUNK_SIZE) {
+                insertChunk(chunk, chunkIndexes, items);
+            }
+        }
+        insertChunk(chunk, chunkIndexes, items);
+        items.sort(Comparator.comparingInt(BulkItemResultDTO::getIndex));
+        return BulkCreateResultDTO.of(items);
     }
 
+    private void insertChunk(List<UserRequestDTO> chunk, List<Integer> chunkIndexes, List<BulkItemResultDTO> items) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<UserWriteOutcome> outcomes = userBatchWriter.insertAll(chunk);
+        for (int i = 0; i < outcomes.size(); i++) {
+            UserWriteOutcome outcome = outcomes.get(i);
+            items.add(outcome.isCreated()
+                    ? BulkItemResultDTO.created(chunkIndexes.get(i), outcome.user().getId())
+                    : BulkItemResultDTO.failed(chunkIndexes.get(i), outcome.errors()));
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    private Map<String, String> validate(UserRequestDTO request) {
+        if (request == null) {
+            return Map.of("body", "User is required");
+        }
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<UserRequestDTO> violation : validator.validate(request)) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return errors;
+    }
+
+    //При промахе кэша одновременные запросы одного id ждут одну загрузку из базы. Транзакцию открывает только
+    //загружающий поток, чтобы ожидающие не занимали соединения. Клиенты, которые недавно писали, не
+    //присоединяются к чужой загрузке: она могла начаться до их записи
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "get"})
     public Optional<UserResponseDTO> getUserById(Long id) {
-        return userRepository.findById(id).map(userMapper::toResponseDTO);
+        UserResponseDTO cached = usersCache.get(id, UserResponseDTO.class);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (ReadReplicaRoutingDataSource.isPrimaryOnly()) {
+            return loadUserById(id);
+        }
+        return userLoads.execute(id, () -> loadUserById(id));
     }
 
-    public List<UserResponseDTO> getAllUsers() {
-        return userRepository.findAll().stream().map(userMapper::toResponseDTO).collect(Collectors.toList());
+    private Optional<UserResponseDTO> loadUserById(Long id) {
+        boolean fromPrimary = readsFromPrimary();
+        Optional<UserResponseDTO> user = readOnlyTransactionTemplate.execute(status -> userStore.findResponseById(id));
+        user.ifPresent(found -> cacheIf(fromPrimary, usersCache, id, found));
+        return user;
+    }
+
+    //Чтения идут на реплики, но в общий кэш кладётся только прочитанное с основной базы: строка с отстающей
+    //реплики попала бы в кэш после сброса и до истечения срока отдавалась бы всем, в том числе клиенту, который
+    //её только что изменил. Кэш наполняют записи и чтения клиентов в окне read-your-writes
+    private boolean readsFromPrimary() {
+        return !readReplicas || ReadReplicaRoutingDataSource.isPrimaryOnly();
+    }
+
+    private static void cacheIf(boolean fromPrimary, Cache cache, Object key, Object value) {
+        if (fromPrimary) {
+            cache.put(key, value);
+        }
+    }
+
+    //Пользователи в порядке запрошенных id, повторы отдаются один раз. Найденные в кэше users берутся оттуда,
+    //остальные читаются запросами WHERE id IN (...) порциями по BATCH_GET_CHUNK_SIZE и кладутся в кэш,
+    //если прочитаны с основной базы
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "batch-get"})
+    public UserBatchDTO getUsersByIds(List<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        Map<Long, UserResponseDTO> found = new HashMap<>();
+        List<Long> toLoad = new ArrayList<>();
+        for (Long id : requested) {
+            UserResponseDTO cached = usersCache.get(id, UserResponseDTO.class);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                toLoad.add(id);
+            }
+        }
+        boolean fromPrimary = readsFromPrimary();
+        for (int from = 0; from < toLoad.size(); from += BATCH_GET_CHUNK_SIZE) {
+            List<Long> chunk = toLoad.subList(from, Math.min(from + BATCH_GET_CHUNK_SIZE, toLoad.size()));
+            for (UserResponseDTO user : userStore.findResponsesByIds(chunk)) {
+                found.put(user.getId(), user);
+                cacheIf(fromPrimary, usersCache, user.getId(), user);
+            }
+        }
+
+        List<UserResponseDTO> items = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requested) {
+            UserResponseDTO user = found.get(id);
+            if (user != null) {
+                items.add(user);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new UserBatchDTO(items, missingIds);
     }
 
-    public Optional<UserResponseDTO> updateUser(Long id, UserRequestDTO requestDTO) {
-        return userRepository.findById(id).map(existingUser -> {
-            existingUser.setName(requestDTO.getName());
-            existingUser.setEmail(requestDTO.getEmail());
-            existingUser.setAge(requestDTO.getAge());
+    //Версия для условных запросов: из кэша users, а при промахе - две колонки из базы без загрузки пользователя
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "get-version"})
+    public Optional<UserVersionDTO> getUserVersion(Long id) {
+        UserResponseDTO cached = usersCache.get(id, UserResponseDTO.class);
+        if (cached != null) {
+            return Optional.of(new UserVersionDTO(cached.getVersion(), cached.getUpdatedAt()));
+        }
+        return userStore.findVersionById(id);
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "get-by-email"})
+    public Optional<UserResponseDTO> getUserByEmail(String email) {
+        return getUserByUniqueKey(userIdsByEmailCache, email.trim(), UserResponseDTO::getEmail, this::findByEmail);
+    }
 
-            User updated = userRepository.save(existingUser);
-            return userMapper.toResponseDTO(updated);
+    //Email уникален только с учётом регистра: "alice@x.com" и "Alice@x.com" - разные пользователи. Поэтому
+    //точное совпадение важнее совпадения без учёта регистра, а если точного нет и таких пользователей
+    //несколько, выбрать одного нельзя
+    private Optional<UserResponseDTO> findByEmail(String email) {
+        List<UserResponseDTO> matches = userStore.findByNormalizedEmail(normalizeEmail(email));
+        for (UserResponseDTO user : matches) {
+            if (user.getEmail().equals(email)) {
+                return Optional.of(user);
+            }
+        }
+        if (matches.size() > 1) {
+            throw new UserEmailAmbiguousException(email);
+        }
+        return matches.stream().findFirst();
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "get-by-name"})
+    public Optional<UserResponseDTO> getUserByName(String name) {
+        return getUserByUniqueKey(userIdsByNameCache, normalizeName(name),
+                user -> normalizeName(user.getName()),
+                userStore::findByName);
+    }
+
+    //В кэше по ключу хранится только id, а пользователь берётся из кэша users, который сбрасывают
+    //updateUser и deleteUser. Если найденный пользователь удалён или его email/имя изменились,
+    //запись по ключу устарела: она удаляется и пользователь ищется в базе заново. Кэшируется только
+    //пользователь, у которого ключ совпадает в точности: email, найденный без учёта регистра, может
+    //перестать быть ответом, когда появится пользователь с точно таким email
+    private Optional<UserResponseDTO> getUserByUniqueKey(Cache idsCache, String key,
+                                                         Function<UserResponseDTO, String> keyOf,
+                                                         Function<String, Optional<UserResponseDTO>> loader) {
+        Long cachedId = idsCache.get(key, Long.class);
+        if (cachedId != null) {
+            Optional<UserResponseDTO> user = getCachedUserById(cachedId);
+            if (user.isPresent() && key.equals(keyOf.apply(user.get()))) {
+                return user;
+            }
+            idsCache.evict(key);
+        }
+        Optional<UserResponseDTO> user = loader.apply(key);
+        boolean fromPrimary = readsFromPrimary();
+        user.ifPresent(found -> {
+            cacheIf(fromPrimary, usersCache, found.getId(), found);
+            if (key.equals(keyOf.apply(found))) {
+                cacheIf(fromPrimary, idsCache, key, found.getId());
+            }
         });
+        return user;
     }
 
-    public boolean deleteUser(Long id) {
-        if(userRepository.existsById(id)) {
-            userRepository.deleteById(id);
+    private Optional<UserResponseDTO> getCachedUserById(Long id) {
+        UserResponseDTO cached = usersCache.get(id, UserResponseDTO.class);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<UserResponseDTO> user = userStore.findResponseById(id);
+        user.ifPresent(found -> cacheIf(readsFromPrimary(), usersCache, id, found));
+        return user;
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "list"})
+    public List<UserResponseDTO> getAllUsers() {
+        return userStore.findAllResponses();
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "list-version"})
+    public UserListVersionDTO getAllUsersVersion() {
+        return userStore.findListVersion();
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "page"})
+    public UserPageDTO getUsersPage(int limit, Long after) {
+        //Запрашиваем на одну запись больше, чтобы понять, есть ли следующая страница
+        List<UserResponseDTO> users = userStore.findPageAfter(after == null ? 0L : after, limit + 1);
+        if (users.size() <= limit) {
+            return new UserPageDTO(users, null);
+        }
+        List<UserResponseDTO> page = users.subList(0, limit);
+        return new UserPageDTO(page, page.get(limit - 1).getId());
+    }
+
+    //sort в виде "поле" или "поле,asc|desc", допустимость поля проверяется в контроллере
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "search"})
+    public UserSearchPageDTO searchUsers(UserSearchFilter filter, String sort, int page, int size) {
+        String[] sortParts = sort.split(",");
+        Sort.Direction direction = sortParts.length > 1
+                ? Sort.Direction.fromString(sortParts[1])
+                : Sort.Direction.ASC;
+        //Как и в getUsersPage, лишняя запись показывает, есть ли следующая страница
+        List<UserResponseDTO> users = userStore.search(filter, Sort.by(direction, sortParts[0]),
+                (long) page * size, size + 1);
+        if (users.size() <= size) {
+            return new UserSearchPageDTO(users, page, size, false);
+        }
+        return new UserSearchPageDTO(users.subList(0, size), page, size, true);
+    }
+
+    //Изменения после отметки (since, after) для инкрементальной синхронизации. updated_at и deleted_at назначаются
+    //до фиксации транзакции, поэтому изменения моложе changesLag не отдаются: иначе транзакция, зафиксированная
+    //позже, но с меньшим временем, оказалась бы позади отметки клиента и он бы её пропустил
+    @Transactional(readOnly = true)
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "changes"})
+    public UserChangesDTO getChanges(LocalDateTime since, long after, int limit) {
+        LocalDateTime until = LocalDateTime.now().minus(changesLag);
+        List<UserResponseDTO> changed = userStore.findChangedAfter(since, after, until, limit + 1);
+        List<UserTombstoneDTO> deleted = userStore.findDeletedAfter(since, after, until, limit + 1);
+
+        //Обе выборки упорядочены по (время, id), сливаем их в общем порядке до limit записей
+        List<UserResponseDTO> upserts = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        LocalDateTime nextSince = since;
+        long nextAfter = after;
+        int c = 0;
+        int d = 0;
+        while (c + d < limit && (c < changed.size() || d < deleted.size())) {
+            boolean takeChanged = d == deleted.size() || c < changed.size()
+                    && isBefore(changed.get(c).getUpdatedAt(), changed.get(c).getId(),
+                    deleted.get(d).deletedAt(), deleted.get(d).userId());
+            if (takeChanged) {
+                UserResponseDTO user = changed.get(c++);
+                upserts.add(user);
+                nextSince = user.getUpdatedAt();
+                nextAfter = user.getId();
+            } else {
+                UserTombstoneDTO tombstone = deleted.get(d++);
+                deletedIds.add(tombstone.userId());
+                nextSince = tombstone.deletedAt();
+                nextAfter = tombstone.userId();
+            }
+        }
+        boolean hasNext = c < changed.size() || d < deleted.size();
+        return new UserChangesDTO(upserts, deletedIds, nextSince, nextAfter, hasNext);
+    }
+
+    private static boolean isBefore(LocalDateTime time, long id, LocalDateTime otherTime, long otherId) {
+        int byTime = time.compareTo(otherTime);
+        return byTime < 0 || byTime == 0 && id < otherId;
+    }
+
+    //Один UPDATE без предварительного SELECT. Если в запросе передана версия, строка обновляется только
+    //при её совпадении, иначе выбрасывается UserVersionConflictException
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id")
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "update"})
+    public boolean updateUser(Long id, UserRequestDTO requestDTO) {
+        LocalDateTime now = LocalDateTime.now();
+        if (requestDTO.getVersion() == null) {
+            boolean updated = userStore.updateUser(id, requestDTO.getName(), requestDTO.getEmail(),
+                    User.emailDomain(requestDTO.getEmail()), requestDTO.getAge(), now) > 0;
+            if (updated) {
+                //UPDATE без условия не возвращает новую версию, поэтому она дочитывается в той же транзакции
+                recordUpdate(id, requestDTO, now, userStore.findVersionById(id).map(UserVersionDTO::version)
+                        .orElse(null));
+            }
+            return updated;
+        }
+        int updated = userStore.updateUserIfVersion(id, requestDTO.getName(), requestDTO.getEmail(),
+                User.emailDomain(requestDTO.getEmail()), requestDTO.getAge(), now, requestDTO.getVersion());
+        if (updated > 0) {
+            //Условный UPDATE увеличил известную версию на единицу, дочитывать её не нужно
+            recordUpdate(id, requestDTO, now, requestDTO.getVersion() + 1);
             return true;
         }
+        //Строка не обновилась: либо пользователя нет, либо версия устарела
+        if (userStore.existsById(id)) {
+            throw new UserVersionConflictException(id);
+        }
         return false;
     }
-}
 
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#id")
+    @Timed(value = MetricsConfig.SERVICE_TIMER, extraTags = {"operation", "delete"})
+    public boolean deleteUser(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        if (userStore.deleteUser(id, now) == 0) {
+            return false;
+        }
+        userEventService.record(List.of(UserEventDTO.deleted(id, now)));
+        return true;
+    }
+
+    private void recordUpdate(Long id, UserRequestDTO requestDTO, LocalDateTime now, Long version) {
+        userEventService.record(List.of(new UserEventDTO(null, UserEventDTO.Type.UPDATED, id, requestDTO.getName(),
+                requestDTO.getEmail(), requestDTO.getAge(), version, now)));
+    }
+}
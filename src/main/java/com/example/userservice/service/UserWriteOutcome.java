@@ -0,0 +1,20 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserResponseDTO;
+
+import java.util.Map;
+
+//Результат вставки одного пользователя в пакете: либо созданный пользователь, либо ошибки по полям
+public record UserWriteOutcome(UserResponseDTO user, Map<String, String> errors) {
+    public static UserWriteOutcome created(UserResponseDTO user) {
+        return new UserWriteOutcome(user, null);
+    }
+
+    public static UserWriteOutcome failed(Map<String, String> errors) {
+        return new UserWriteOutcome(null, errors);
+    }
+
+    public boolean isCreated() {
+        return user != null;
+    }
+}
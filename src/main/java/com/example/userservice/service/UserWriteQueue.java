@@ -0,0 +1,170 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.exception.UserWriteQueueFullException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//Отложенная запись новых пользователей (users.write-behind.enabled=true). Запросы на создание складываются
+//в ограниченную очередь, а один фоновый поток вставляет их пакетами через UserBatchWriter: пакет закрывается,
+//когда набралось max-batch-size запросов или прошло max-delay с момента первого из них.
+//Вызывающий поток ждёт вставки своего пакета и получает id или ошибки по полям
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.write-behind.enabled", havingValue = "true")
+public class UserWriteQueue {
+    //Как часто простаивающий писатель проверяет, не пора ли остановиться
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final UserBatchWriter userBatchWriter;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int capacity;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final DistributionSummary batchSizes;
+    private final Thread writer;
+    //Постановка в очередь (read) и остановка (write) взаимно исключены: после stop() ни один запрос не попадёт
+    //в очередь, которую писатель уже опустошил и покинул
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+
+    public UserWriteQueue(UserBatchWriter userBatchWriter, MeterRegistry meterRegistry,
+                          @Value("${users.write-behind.queue-capacity:10000}") int capacity,
+                          @Value("${users.write-behind.max-batch-size:500}") int maxBatchSize,
+                          @Value("${users.write-behind.max-delay:5ms}") Duration maxDelay) {
+        this.userBatchWriter = userBatchWriter;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.batchSizes = meterRegistry.summary("users.write-behind.batch.size");
+        meterRegistry.gauge("users.write-behind.queue.size", queue, BlockingQueue::size);
+        this.writer = Thread.ofPlatform().name("user-write-behind").daemon().unstarted(this::drain);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer.start();
+    }
+
+    //Новые запросы больше не принимаются, уже поставленные в очередь дописываются до закрытия контекста
+    @PreDestroy
+    void stop() throws InterruptedException {
+        stopLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+        writer.join();
+    }
+
+    //При переполненной очереди запрос сразу отклоняется, чтобы клиент повторил его позже,
+    //а не занимал поток в ожидании
+    public UserWriteOutcome submit(UserRequestDTO request) {
+        PendingWrite write = new PendingWrite(request, new CompletableFuture<>());
+        stopLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Write queue is stopped");
+            }
+            if (!queue.offer(write)) {
+                throw new UserWriteQueueFullException(capacity);
+            }
+        } finally {
+            stopLock.readLock().unlock();
+        }
+        try {
+            return write.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    //Поток писателя не прерывается: прерывание во время JDBC-вызова может закрыть соединение.
+    //Если он всё же завершится, оставшиеся запросы получают ошибку, а не ждут вечно
+    private void drain() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    collect(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+        } finally {
+            queue.drainTo(batch);
+            IllegalStateException stopped = new IllegalStateException("Write queue is stopped");
+            batch.forEach(write -> write.result().completeExceptionally(stopped));
+        }
+    }
+
+    private void collect(List<PendingWrite> batch) throws InterruptedException {
+        PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            //Сначала забираем всё, что уже накопилось, и ждём только при пустой очереди
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        batchSizes.record(batch.size());
+        try {
+            List<UserWriteOutcome> outcomes = userBatchWriter.insertAll(
+                    batch.stream().map(PendingWrite::request).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(outcomes.get(i));
+            }
+        } catch (Throwable e) {
+            //В том числе Error (например, OutOfMemoryError): пакет завершается ошибкой, а писатель продолжает
+            //работу, иначе все ожидающие и новые запросы зависли бы
+            batch.forEach(write -> write.result().completeExceptionally(e));
+        }
+    }
+
+    private record PendingWrite(UserRequestDTO request, CompletableFuture<UserWriteOutcome> result) {
+    }
+}
@@ -0,0 +1,10 @@
+-- Схема для встроенной H2 (тесты и бенчмарки), повторяет миграции для PostgreSQL
+create sequence if not exists users_seq start with 1 increment by 50;
+
+create table if not exists users (
+    id         bigint       not null primary key,
+    name       varchar(255) not null unique,
+    email      varchar(255) not null unique,
+    age        integer      not null,
+    created_at timestamp(6) not null
+);
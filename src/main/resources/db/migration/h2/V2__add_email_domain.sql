@@ -0,0 +1,5 @@
+alter table users add column email_domain varchar(255);
+
+update users set email_domain = lower(substring(email, locate('@', email) + 1));
+
+alter table users alter column email_domain set not null;
@@ -0,0 +1,4 @@
+-- В H2 префиксный LIKE использует обычный индекс, поэтому по name отдельный индекс не нужен
+create index users_email_domain_idx on users (email_domain);
+create index users_age_idx on users (age);
+create index users_created_at_idx on users (created_at);
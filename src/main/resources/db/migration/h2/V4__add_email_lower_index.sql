@@ -0,0 +1,2 @@
+-- H2 не поддерживает индексы по выражению; на встроенной базе поиск по lower(email) выполняется просмотром таблицы
+-- Миграция оставлена, чтобы номера версий совпадали с PostgreSQL
@@ -0,0 +1,6 @@
+-- Время последнего изменения пользователя, используется в заголовке Last-Modified
+alter table users add column updated_at timestamp(6);
+
+update users set updated_at = created_at;
+
+alter table users alter column updated_at set not null;
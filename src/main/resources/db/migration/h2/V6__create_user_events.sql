@@ -0,0 +1,12 @@
+-- Журнал изменений пользователей (transactional outbox): событие пишется в той же транзакции, что и изменение.
+-- id выдаются базой по одному, по ним клиенты GET /api/users/events запоминают позицию в журнале
+create table if not exists user_events (
+    id          bigint generated by default as identity primary key,
+    type        varchar(16)  not null,
+    user_id     bigint       not null,
+    name        varchar(255),
+    email       varchar(255),
+    age         integer,
+    version     bigint,
+    occurred_at timestamp(6) not null
+);
@@ -0,0 +1,8 @@
+-- Имена и email всех пользователей при шардировании: строка вставляется в первый шард до строки users,
+-- поэтому уникальные ограничения этой таблицы не дают двум шардам принять одинаковые значения.
+-- Без шардирования таблица не используется
+create table if not exists user_keys (
+    user_id bigint       not null primary key,
+    name    varchar(255) not null unique,
+    email   varchar(255) not null unique
+);
@@ -0,0 +1,17 @@
+-- При шардировании событие пишется в шард пользователя в одной транзакции с изменением, а фоновый поток
+-- переносит его в общий журнал user_events первого шарда. outbox_shard и outbox_id - откуда событие перенесено:
+-- по ним повторный перенос после сбоя не создаёт второе событие. Без шардирования таблица не используется
+create table if not exists user_outbox (
+    id          bigint generated by default as identity primary key,
+    type        varchar(16)  not null,
+    user_id     bigint       not null,
+    name        varchar(255),
+    email       varchar(255),
+    age         integer,
+    version     bigint,
+    occurred_at timestamp(6) not null
+);
+
+alter table user_events add column if not exists outbox_shard integer;
+alter table user_events add column if not exists outbox_id bigint;
+create unique index if not exists user_events_outbox_idx on user_events (outbox_shard, outbox_id);
@@ -0,0 +1,11 @@
+-- Исходная схема в том виде, в каком её создавал ddl-auto=update.
+-- На уже существующей базе эта миграция пропускается (spring.flyway.baseline-on-migrate=true)
+create sequence if not exists users_seq start with 1 increment by 50;
+
+create table if not exists users (
+    id         bigint       not null primary key,
+    name       varchar(255) not null unique,
+    email      varchar(255) not null unique,
+    age        integer      not null,
+    created_at timestamp(6) not null
+);
@@ -0,0 +1,6 @@
+-- Домен почты отдельной колонкой, чтобы поиск по домену не требовал полного просмотра таблицы
+alter table users add column email_domain varchar(255);
+
+update users set email_domain = lower(substring(email from position('@' in email) + 1));
+
+alter table users alter column email_domain set not null;
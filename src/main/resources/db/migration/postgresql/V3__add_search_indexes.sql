@@ -0,0 +1,6 @@
+-- Индексы для GET /api/users/search. Точный поиск по name и email уже покрыт уникальными ограничениями,
+-- но при недетерминированной сортировке (не "C") LIKE 'prefix%' по ним не работает, отсюда text_pattern_ops
+create index users_name_prefix_idx on users (name text_pattern_ops);
+create index users_email_domain_idx on users (email_domain);
+create index users_age_idx on users (age);
+create index users_created_at_idx on users (created_at);
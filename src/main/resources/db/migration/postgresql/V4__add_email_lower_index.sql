@@ -0,0 +1,2 @@
+-- GET /api/users/by-email/{email} сравнивает email без учёта регистра
+create index users_email_lower_idx on users (lower(email));
@@ -0,0 +1,10 @@
+-- GET /api/users/changes читает изменённых пользователей по ключу (updated_at, id)
+create index users_updated_at_idx on users (updated_at, id);
+
+-- Надгробия удалённых пользователей: по ним клиенты инкрементальной синхронизации узнают об удалениях
+create table if not exists user_tombstones (
+    user_id    bigint       not null primary key,
+    deleted_at timestamp(6) not null
+);
+
+create index user_tombstones_deleted_at_idx on user_tombstones (deleted_at, user_id);
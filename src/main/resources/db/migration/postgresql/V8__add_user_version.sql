@@ -0,0 +1,3 @@
+-- Версия для оптимистичных блокировок. Раньше колонку добавлял ddl-auto=update, поэтому на базе, подключённой
+-- к Flyway с baseline на V1, она может уже быть
+alter table users add column if not exists version bigint default 0 not null;
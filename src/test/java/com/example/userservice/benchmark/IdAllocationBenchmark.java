@@ -0,0 +1,65 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.service.UserService;
+import com.example.userservice.util.TestInstances;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+
+//Сравнение скорости UserService.createUser с оптимизатором pooled, который используется, и с pooled-lo.
+//Оба выполняют около одного nextval на ID_ALLOCATION_SIZE вставок, разница в пределах шума.
+//Запуск: mvn test -Pbenchmark -Dtest=IdAllocationBenchmark
+@Tag("benchmark")
+public class IdAllocationBenchmark {
+    private static final int WARMUP_INSERTS = Integer.getInteger("benchmark.warmup", 2_000);
+    private static final int MEASURED_INSERTS = Integer.getInteger("benchmark.inserts", 20_000);
+
+    @Test
+    @DisplayName("createUser throughput: pooled vs pooled-lo")
+    void compareIdAllocation() {
+        //pooled - оптимизатор Hibernate 6 по умолчанию для users_seq
+        Result pooled = run("pooled", "pooled");
+        Result pooledLo = run("pooled-lo", "pooled-lo");
+
+        System.out.println();
+        System.out.printf("%-12s %14s %22s%n", "allocation", "inserts/sec", "statements per insert");
+        for (Result result : new Result[]{pooled, pooledLo}) {
+            System.out.printf("%-12s %14.0f %22.2f%n", result.name, result.insertsPerSecond, result.statementsPerInsert);
+        }
+        System.out.printf("speedup: %.2fx%n", pooledLo.insertsPerSecond / pooled.insertsPerSecond);
+    }
+
+    private Result run(String name, String optimizer) {
+        try (ConfigurableApplicationContext context = TestInstances.start(TestInstances.h2Url("id-benchmark-" + name),
+                Map.of("spring.jpa.properties.hibernate.id.optimizer.pooled.preferred", optimizer,
+                        "spring.jpa.properties.hibernate.generate_statistics", true,
+                        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener", "warn"))) {
+            UserService userService = context.getBean(UserService.class);
+            Statistics statistics = context.getBean(EntityManagerFactory.class)
+                    .unwrap(SessionFactory.class).getStatistics();
+
+            insert(userService, "warmup", WARMUP_INSERTS);
+            statistics.clear();
+            long start = System.nanoTime();
+            insert(userService, "user", MEASURED_INSERTS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new Result(name, MEASURED_INSERTS / seconds,
+                    (double) statistics.getPrepareStatementCount() / MEASURED_INSERTS);
+        }
+    }
+
+    private void insert(UserService userService, String prefix, int count) {
+        for (int i = 0; i < count; i++) {
+            userService.createUser(new UserRequestDTO(prefix + i, prefix + i + "@example.com", 30));
+        }
+    }
+
+    private record Result(String name, double insertsPerSecond, double statementsPerInsert) {}
+}
@@ -0,0 +1,40 @@
+package com.example.userservice.benchmark;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+
+//Запуск JMH-бенчмарков из этого пакета. Результаты сохраняются в target/jmh/result.json для сравнения между релизами.
+//Запуск: mvn test -Pbenchmark -Dtest=JmhBenchmarks [-Djmh.include=UserJson] [-Djmh.profilers=gc]
+@Tag("benchmark")
+public class JmhBenchmarks {
+    @Test
+    @DisplayName("JMH: mapping, validation, JSON and service benchmarks")
+    void runBenchmarks() throws RunnerException {
+        new File("target/jmh").mkdirs();
+        OptionsBuilder options = new OptionsBuilder();
+        options.include(JmhBenchmarks.class.getPackageName() + "\\..*" + System.getProperty("jmh.include", ""))
+                .warmupIterations(Integer.getInteger("jmh.warmupIterations", 3))
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(Integer.getInteger("jmh.iterations", 5))
+                .measurementTime(TimeValue.seconds(1))
+                .forks(Integer.getInteger("jmh.forks", 1))
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh/result.json");
+        for (String profiler : System.getProperty("jmh.profilers", "").split(",")) {
+            if (!profiler.isBlank()) {
+                options.addProfiler(profiler.trim());
+            }
+        }
+        Options built = options.build();
+        new Runner(built).run();
+    }
+}
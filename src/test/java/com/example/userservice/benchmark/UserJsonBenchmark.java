@@ -0,0 +1,64 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Сериализация ответов и разбор запросов Jackson с той же настройкой ObjectMapper, что и в приложении
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserJsonBenchmark {
+    private static final int LIST_SIZE = 100;
+
+    private ObjectWriter responseWriter;
+    private ObjectWriter listWriter;
+    private ObjectReader requestReader;
+    private UserResponseDTO response;
+    private List<UserResponseDTO> responses;
+    private byte[] requestJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        var objectMapper = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        responseWriter = objectMapper.writerFor(UserResponseDTO.class);
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, UserResponseDTO.class));
+        requestReader = objectMapper.readerFor(UserRequestDTO.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        response = new UserResponseDTO(1L, "Alice", "alice@example.com", 25, now, 3L);
+        responses = new ArrayList<>(LIST_SIZE);
+        for (long i = 0; i < LIST_SIZE; i++) {
+            responses.add(new UserResponseDTO(i, "user" + i, "user" + i + "@example.com", 30, now, 0L));
+        }
+        requestJson = objectMapper.writeValueAsBytes(new UserRequestDTO("Alice", "alice@example.com", 25));
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeUserList() throws IOException {
+        return listWriter.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public UserRequestDTO deserializeRequest() throws IOException {
+        return requestReader.readValue(requestJson);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.mapper.UserMapperImpl;
+import com.example.userservice.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+//Преобразования MapStruct: запрос -> сущность и сущность -> ответ
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserMappingBenchmark {
+    private final UserMapper userMapper = new UserMapperImpl();
+    private UserRequestDTO request;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        request = new UserRequestDTO("Alice", "alice@example.com", 25);
+        user = new User("Alice", "alice@example.com", 25, LocalDateTime.now());
+        user.setId(1L);
+    }
+
+    @Benchmark
+    public User toEntity() {
+        return userMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public UserResponseDTO toResponseDTO() {
+        return userMapper.toResponseDTO(user);
+    }
+}
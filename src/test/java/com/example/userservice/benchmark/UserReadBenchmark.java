@@ -0,0 +1,87 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.service.UserService;
+import com.example.userservice.util.TestInstances;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//Чтение через управляемые сущности + UserMapper (прежний путь) против чтения сразу в DTO в read-only транзакции.
+//Число выделяемых байт на операцию показывает профилировщик gc:
+//mvn test -Pbenchmark -Dtest=JmhBenchmarks -Djmh.include=UserReadBenchmark -Djmh.profilers=gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserReadBenchmark {
+    private static final int SEEDED_USERS = 1_000;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private UserMapper userMapper;
+    private TransactionTemplate readWriteTransaction;
+    private TransactionTemplate readOnlyTransaction;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void startInstance() {
+        context = TestInstances.start(TestInstances.h2Url("read-benchmark"), Map.of());
+        userRepository = context.getBean(UserRepository.class);
+        userMapper = context.getBean(UserMapper.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        List<UserRequestDTO> requests = new ArrayList<>();
+        for (int i = 0; i < SEEDED_USERS; i++) {
+            requests.add(new UserRequestDTO("seed" + i, "seed" + i + "@example.com", 30));
+        }
+        context.getBean(UserService.class).createUsers(requests.iterator());
+        firstId = userRepository.findPageAfter(0L, 1).get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopInstance() {
+        context.close();
+    }
+
+    private long randomSeededId() {
+        return firstId + ThreadLocalRandom.current().nextInt(SEEDED_USERS);
+    }
+
+    @Benchmark
+    public Optional<UserResponseDTO> findByIdEntity() {
+        long id = randomSeededId();
+        return readWriteTransaction.execute(status -> userRepository.findById(id).map(userMapper::toResponseDTO));
+    }
+
+    @Benchmark
+    public Optional<UserResponseDTO> findByIdProjection() {
+        long id = randomSeededId();
+        return readOnlyTransaction.execute(status -> userRepository.findResponseById(id));
+    }
+
+    @Benchmark
+    public List<UserResponseDTO> findAllEntity() {
+        return readWriteTransaction.execute(status -> userRepository.findAll().stream()
+                .map(userMapper::toResponseDTO)
+                .toList());
+    }
+
+    @Benchmark
+    public List<UserResponseDTO> findAllProjection() {
+        return readOnlyTransaction.execute(status -> userRepository.findAllResponses());
+    }
+}
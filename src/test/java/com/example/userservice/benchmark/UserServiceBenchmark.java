@@ -0,0 +1,96 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.config.CacheConfig;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.service.UserService;
+import com.example.userservice.util.TestInstances;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Вызовы UserService внутри поднятого приложения поверх встроенной H2
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserServiceBenchmark {
+    private static final int SEEDED_USERS = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private Validator validator;
+    private ObjectMapper objectMapper;
+    private Cache usersCache;
+    private final AtomicLong sequence = new AtomicLong();
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void startInstance() {
+        context = TestInstances.start(TestInstances.h2Url("service-benchmark"), Map.of());
+        userService = context.getBean(UserService.class);
+        validator = context.getBean(Validator.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        usersCache = context.getBean(CacheManager.class).getCache(CacheConfig.USERS_CACHE);
+
+        firstId = userService.createUser(new UserRequestDTO("seed0", "seed0@example.com", 30)).getId();
+        for (int i = 1; i < SEEDED_USERS; i++) {
+            userService.createUser(new UserRequestDTO("seed" + i, "seed" + i + "@example.com", 30));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopInstance() {
+        context.close();
+    }
+
+    private long randomSeededId() {
+        return firstId + ThreadLocalRandom.current().nextInt(SEEDED_USERS);
+    }
+
+    @Benchmark
+    public Optional<UserResponseDTO> getUserByIdCached() {
+        return userService.getUserById(firstId);
+    }
+
+    @Benchmark
+    public Optional<UserResponseDTO> getUserByIdUncached() {
+        long id = randomSeededId();
+        usersCache.evict(id);
+        return userService.getUserById(id);
+    }
+
+    @Benchmark
+    public UserPageDTO getUsersPage() {
+        return userService.getUsersPage(100, randomSeededId());
+    }
+
+    @Benchmark
+    public boolean updateUser() {
+        long id = randomSeededId();
+        return userService.updateUser(id, new UserRequestDTO("seed" + (id - firstId),
+                "seed" + (id - firstId) + "@example.com", ThreadLocalRandom.current().nextInt(120)));
+    }
+
+    //Полный путь POST /add без HTTP: разбор JSON, валидация, вставка, маппинг и сериализация ответа
+    @Benchmark
+    public byte[] createUserPipeline() throws IOException {
+        long n = sequence.incrementAndGet();
+        byte[] body = ("{\"name\":\"bench" + n + "\",\"email\":\"bench" + n + "@example.com\",\"age\":30}").getBytes();
+        UserRequestDTO request = objectMapper.readValue(body, UserRequestDTO.class);
+        if (!validator.validate(request).isEmpty()) {
+            throw new IllegalStateException("Benchmark request is invalid");
+        }
+        return objectMapper.writeValueAsBytes(userService.createUser(request));
+    }
+}
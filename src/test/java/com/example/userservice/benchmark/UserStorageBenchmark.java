@@ -0,0 +1,108 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.repository.UserStore;
+import com.example.userservice.service.UserService;
+import com.example.userservice.util.TestInstances;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//JPA-репозиторий над встроенной H2 против InMemoryUserRepository (users.storage=memory) без журнала и с журналом
+//при fsync=interval и always. Хранилища вызываются так же, как из UserService, - внутри транзакции Spring:
+//mvn test -Pbenchmark -Dtest=JmhBenchmarks -Djmh.include=UserStorageBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserStorageBenchmark {
+    private static final int SEEDED_USERS = 1_000;
+
+    @Param({"jpa", "memory", "journal-interval", "journal-always"})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private UserStore userStore;
+    private TransactionTemplate readWriteTransaction;
+    private TransactionTemplate readOnlyTransaction;
+    private long firstId;
+    private Path journalDirectory;
+
+    @Setup(Level.Trial)
+    public void startInstance() throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("users.storage", storage.equals("jpa") ? "jpa" : "memory");
+        if (storage.startsWith("journal-")) {
+            journalDirectory = Files.createTempDirectory("user-journal");
+            properties.put("users.storage.journal", journalDirectory.resolve("users.journal").toString());
+            properties.put("users.storage.journal.fsync", storage.substring("journal-".length()));
+        }
+        context = TestInstances.start(TestInstances.h2Url("storage-benchmark-" + storage), properties);
+        userStore = context.getBean(UserStore.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        List<UserRequestDTO> requests = new ArrayList<>();
+        for (int i = 0; i < SEEDED_USERS; i++) {
+            requests.add(new UserRequestDTO("seed" + i, "seed" + i + "@example.com", 30));
+        }
+        context.getBean(UserService.class).createUsers(requests.iterator());
+        firstId = userStore.findPageAfter(0L, 1).get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopInstance() throws IOException {
+        context.close();
+        if (journalDirectory != null) {
+            FileSystemUtils.deleteRecursively(journalDirectory);
+        }
+    }
+
+    private long randomSeededId() {
+        return firstId + ThreadLocalRandom.current().nextInt(SEEDED_USERS);
+    }
+
+    @Benchmark
+    public Optional<UserResponseDTO> findById() {
+        long id = randomSeededId();
+        return readOnlyTransaction.execute(status -> userStore.findResponseById(id));
+    }
+
+    @Benchmark
+    public List<UserResponseDTO> findPage() {
+        long after = randomSeededId() - 1;
+        return readOnlyTransaction.execute(status -> userStore.findPageAfter(after, 20));
+    }
+
+    @Benchmark
+    public List<UserResponseDTO> findByEmail() {
+        long index = randomSeededId() - firstId;
+        return readOnlyTransaction.execute(status -> userStore.findByNormalizedEmail("seed" + index + "@example.com"));
+    }
+
+    //Имя и email не меняются, поэтому обновление не упирается в уникальные индексы
+    @Benchmark
+    public Integer update() {
+        long id = randomSeededId();
+        long index = id - firstId;
+        return readWriteTransaction.execute(status -> userStore.updateUser(id, "seed" + index,
+                "seed" + index + "@example.com", "example.com", ThreadLocalRandom.current().nextInt(18, 99),
+                LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Сравнение JSON и CBOR: время сериализации ответов и разбора запросов (в том числе массового добавления).
+//Размеры сообщений в байтах печатаются при подготовке каждого формата
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserWireFormatBenchmark {
+    private static final int LIST_SIZE = 100;
+
+    @Param({"json", "cbor"})
+    public String format;
+
+    private ObjectWriter responseWriter;
+    private ObjectWriter listWriter;
+    private ObjectReader requestReader;
+    private ObjectReader bulkReader;
+    private UserResponseDTO response;
+    private List<UserResponseDTO> responses;
+    private byte[] request;
+    private byte[] bulkRequest;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if ("cbor".equals(format)) {
+            builder.factory(new CBORFactory());
+        }
+        ObjectMapper objectMapper = builder.build();
+        CollectionType responseList = objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, UserResponseDTO.class);
+        CollectionType requestList = objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, UserRequestDTO.class);
+        responseWriter = objectMapper.writerFor(UserResponseDTO.class);
+        listWriter = objectMapper.writerFor(responseList);
+        requestReader = objectMapper.readerFor(UserRequestDTO.class);
+        bulkReader = objectMapper.readerFor(requestList);
+
+        LocalDateTime now = LocalDateTime.now();
+        response = new UserResponseDTO(1L, "Alice", "alice@example.com", 25, now, 3L, now);
+        responses = new ArrayList<>(LIST_SIZE);
+        List<UserRequestDTO> requests = new ArrayList<>(LIST_SIZE);
+        for (long i = 0; i < LIST_SIZE; i++) {
+            responses.add(new UserResponseDTO(i, "user" + i, "user" + i + "@example.com", 30, now, 0L, now));
+            requests.add(new UserRequestDTO("user" + i, "user" + i + "@example.com", 30));
+        }
+        request = objectMapper.writeValueAsBytes(new UserRequestDTO("Alice", "alice@example.com", 25));
+        bulkRequest = objectMapper.writerFor(requestList).writeValueAsBytes(requests);
+
+        System.out.printf("%s payload sizes: user=%d B, list of %d=%d B, request=%d B, bulk of %d=%d B%n",
+                format, serializeUser().length, LIST_SIZE, serializeUserList().length, request.length,
+                LIST_SIZE, bulkRequest.length);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeUserList() throws IOException {
+        return listWriter.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public UserRequestDTO deserializeRequest() throws IOException {
+        return requestReader.readValue(request);
+    }
+
+    @Benchmark
+    public List<UserRequestDTO> deserializeBulkRequest() throws IOException {
+        return bulkReader.readValue(bulkRequest);
+    }
+}
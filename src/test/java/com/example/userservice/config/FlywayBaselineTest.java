@@ -0,0 +1,46 @@
+package com.example.userservice.config;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.service.UserService;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//База, которую до перехода на Flyway создал ddl-auto=update по исходной сущности User без колонки version
+public class FlywayBaselineTest {
+    private static final String URL = TestInstances.h2Url("flyway-baseline");
+
+    @Test
+    @DisplayName("migrations - a database created before Flyway is baselined and brought to the current schema")
+    void baselineDatabaseIsMigrated() {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        jdbc.execute("create sequence users_seq start with 1 increment by 50");
+        jdbc.execute("create table users (age integer not null, created_at timestamp(6) not null, " +
+                "id bigint not null, email varchar(255) not null unique, name varchar(255) not null unique, " +
+                "primary key (id))");
+        jdbc.update("insert into users (id, name, email, age, created_at) values (?, ?, ?, ?, ?)",
+                1L, "Alice", "alice@example.com", 25, LocalDateTime.now());
+        jdbc.queryForObject("select nextval('users_seq')", Long.class);
+
+        try (ConfigurableApplicationContext context = TestInstances.start(URL,
+                Map.of("spring.flyway.baseline-on-migrate", "true"))) {
+            UserService userService = context.getBean(UserService.class);
+            UserResponseDTO alice = userService.getUserById(1L).orElseThrow();
+            assertEquals(0L, alice.getVersion());
+            assertEquals(alice.getCreatedAt(), alice.getUpdatedAt());
+
+            assertTrue(userService.updateUser(1L, new UserRequestDTO("Alice", "alice@corp.com", 26, 0L)));
+            assertEquals(1L, userService.getUserById(1L).orElseThrow().getVersion());
+            assertNotEquals(1L, userService.createUser(new UserRequestDTO("Bob", "bob@example.com", 30)).getId());
+        }
+    }
+}
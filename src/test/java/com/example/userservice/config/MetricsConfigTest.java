@@ -0,0 +1,63 @@
+package com.example.userservice.config;
+
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsConfigTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    @DisplayName("GET /actuator/prometheus - latency histograms for every layer of GET /api/users/{id}")
+    void prometheusExposesLatencyHistograms() throws Exception {
+        try (ConfigurableApplicationContext context = TestInstances.start(TestInstances.h2Url("metrics"),
+                Map.of("spring.main.web-application-type", "servlet",
+                        "server.port", 0,
+                        "management.endpoints.web.exposure.include", "prometheus"))) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+            HttpResponse<String> created = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/add"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"name\":\"Alice\",\"email\":\"alice@example.com\",\"age\":30}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(201, created.statusCode());
+            assertEquals(404, get(baseUrl + "/api/users/-1").statusCode());
+            HttpResponse<String> cbor = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/all"))
+                    .header("Accept", "application/cbor")
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals("application/cbor", cbor.headers().firstValue("Content-Type").orElseThrow());
+
+            String scrape = get(baseUrl + "/actuator/prometheus").body();
+            assertTrue(hasSample(scrape, "users_service_seconds_bucket", "operation=\"create\""));
+            assertTrue(hasSample(scrape, "users_service_seconds_bucket", "operation=\"get\""));
+            assertTrue(hasSample(scrape, "users_mapping_seconds_bucket", ""));
+            assertTrue(hasSample(scrape, "users_json_seconds_bucket", "direction=\"read\",type=\"UserRequestDTO\""));
+            assertTrue(hasSample(scrape, "users_json_seconds_bucket", "direction=\"write\",type=\"UserResponseDTO\""));
+            assertTrue(hasSample(scrape, "users_cbor_seconds_bucket", "direction=\"write\""));
+            assertTrue(hasSample(scrape, "spring_data_repository_invocations_seconds_bucket", "method=\"saveAll\""));
+            assertTrue(hasSample(scrape, "hikaricp_connections_acquire_seconds_bucket", ""));
+            assertTrue(hasSample(scrape, "http_server_requests_seconds_bucket", "uri=\"/api/users/{id}\""));
+        }
+    }
+
+    private static boolean hasSample(String scrape, String metric, String tags) {
+        return scrape.lines().anyMatch(line -> line.startsWith(metric + "{") && line.contains(tags));
+    }
+
+    private HttpResponse<String> get(String url) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.userservice.config;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.service.UserService;
+import com.example.userservice.util.TestInstances;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Основная база и реплика - две независимые базы H2 без репликации, поэтому по наличию записи видно,
+//куда ушёл запрос
+public class ReadReplicaConfigTest {
+    private static final String REPLICA_URL = TestInstances.h2Url("read-replica-replica");
+
+    private static ConfigurableApplicationContext context;
+    private static String baseUrl;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startInstance() {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration/h2")
+                .load()
+                .migrate();
+        context = TestInstances.start(TestInstances.h2Url("read-replica-primary"),
+                Map.of("spring.main.web-application-type", "servlet",
+                        "server.port", 0,
+                        "users.read-replica.urls", REPLICA_URL,
+                        "users.read-replica.sticky-window", "1m"));
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/users";
+    }
+
+    @AfterAll
+    static void stopInstance() {
+        context.close();
+    }
+
+    @Test
+    @DisplayName("UserService - writes go to the primary, read-only methods to the replica")
+    void readsGoToReplica() {
+        UserService userService = context.getBean(UserService.class);
+        userService.createUser(new UserRequestDTO("Alice", "alice@example.com", 25));
+
+        assertTrue(userService.getAllUsers().stream().noneMatch(user -> "Alice".equals(user.getName())));
+        ReadReplicaRoutingDataSource.setPrimaryOnly(true);
+        try {
+            assertTrue(userService.getAllUsers().stream().anyMatch(user -> "Alice".equals(user.getName())));
+        } finally {
+            ReadReplicaRoutingDataSource.setPrimaryOnly(false);
+        }
+    }
+
+    @Test
+    @DisplayName("GET /api/users/all - client that has just written reads from the primary")
+    void clientReadsItsOwnWrites() throws Exception {
+        HttpResponse<String> created = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/add"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"name\":\"Bob\",\"email\":\"bob@example.com\",\"age\":30}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(201, created.statusCode());
+        String cookie = created.headers().firstValue("Set-Cookie").orElseThrow();
+        assertTrue(cookie.startsWith(ReadYourWritesFilter.COOKIE_NAME + "="));
+
+        HttpResponse<String> own = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/all"))
+                .header("Cookie", cookie.substring(0, cookie.indexOf(';')))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> other = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/all")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertTrue(own.body().contains("bob@example.com"));
+        assertFalse(other.body().contains("bob@example.com"));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/batch-get - a read-only POST does not pin the client to the primary")
+    void batchGetIsNotAWrite() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/batch-get"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"ids\":[1,2]}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Set-Cookie").isEmpty());
+    }
+
+    @Test
+    @DisplayName("UserService - lookups read from the replica, but only rows read from the primary get into the cache")
+    void laggingReplicaDoesNotPoisonCache() throws Exception {
+        UserService userService = context.getBean(UserService.class);
+        Cache usersCache = context.getBean(CacheManager.class).getCache(CacheConfig.USERS_CACHE);
+        UserResponseDTO carol = userService.createUser(new UserRequestDTO("Carol", "carol@example.com", 25));
+        //Реплика успела получить вставку, но не последующее изменение
+        copyToReplica(carol);
+        assertTrue(userService.updateUser(carol.getId(), new UserRequestDTO("Carol", "carol@example.com", 40)));
+
+        assertEquals(25, userService.getUserById(carol.getId()).orElseThrow().getAge());
+        assertEquals(25, userService.getUsersByIds(List.of(carol.getId())).getItems().get(0).getAge());
+        assertEquals(25, userService.getUserByEmail("carol@example.com").orElseThrow().getAge());
+        assertNull(usersCache.get(carol.getId()));
+
+        //Клиент в окне read-your-writes читает с основной базы, и этот результат попадает в кэш для всех
+        ReadReplicaRoutingDataSource.setPrimaryOnly(true);
+        try {
+            assertEquals(40, userService.getUserById(carol.getId()).orElseThrow().getAge());
+        } finally {
+            ReadReplicaRoutingDataSource.setPrimaryOnly(false);
+        }
+        assertEquals(40, usersCache.get(carol.getId(), UserResponseDTO.class).getAge());
+        assertEquals(40, userService.getUserById(carol.getId()).orElseThrow().getAge());
+    }
+
+    private static void copyToReplica(UserResponseDTO user) throws Exception {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             PreparedStatement insert = connection.prepareStatement("insert into users "
+                     + "(id, name, email, email_domain, age, created_at, updated_at, version) "
+                     + "values (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            insert.setLong(1, user.getId());
+            insert.setString(2, user.getName());
+            insert.setString(3, user.getEmail());
+            insert.setString(4, user.getEmail().substring(user.getEmail().indexOf('@') + 1));
+            insert.setInt(5, user.getAge());
+            insert.setTimestamp(6, Timestamp.valueOf(user.getCreatedAt()));
+            insert.setTimestamp(7, Timestamp.valueOf(user.getUpdatedAt()));
+            insert.setLong(8, user.getVersion());
+            insert.executeUpdate();
+        }
+    }
+}
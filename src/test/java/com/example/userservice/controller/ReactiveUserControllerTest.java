@@ -0,0 +1,212 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.exception.UserVersionConflictException;
+import com.example.userservice.service.ReactiveUserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveUserController.class)
+@ActiveProfiles("reactive")
+public class ReactiveUserControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveUserService userService;
+
+    @Test
+    @DisplayName("POST /api/users/add - successful creation")
+    void successfulUserCreation() {
+        UserRequestDTO request = new UserRequestDTO("Alice", "alice@example.com", 25);
+        when(userService.createUser(any(UserRequestDTO.class))).thenReturn(Mono.just(
+                new UserResponseDTO(1L, "Alice", "alice@example.com", 25, LocalDateTime.now())));
+
+        webTestClient.post().uri("/api/users/add")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.name").isEqualTo("Alice");
+    }
+
+    @Test
+    @DisplayName("POST /api/users/add - invalid body")
+    void invalidUserCreation() {
+        UserRequestDTO request = new UserRequestDTO("", "not-an-email", 25);
+
+        webTestClient.post().uri("/api/users/add")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.name").exists()
+                .jsonPath("$.email").exists();
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} - user is not found")
+    void userNotFound() {
+        when(userService.getUserById(1L)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/users/1")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("GET /api/users - page with next cursor")
+    void usersPage() {
+        when(userService.getUsersPage(eq(1), isNull())).thenReturn(Mono.just(new UserPageDTO(
+                List.of(new UserResponseDTO(1L, "Alice", "alice@example.com", 25, LocalDateTime.now())), 1L)));
+
+        webTestClient.get().uri("/api/users?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo(1)
+                .jsonPath("$.nextCursor").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("GET /api/users - limit is out of range")
+    void usersPageLimitOutOfRange() {
+        webTestClient.get().uri("/api/users?limit=1001")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.limit").isEqualTo("Limit must be at most 1000");
+    }
+
+    @Test
+    @DisplayName("GET /api/users/stream - users are streamed as NDJSON")
+    void streamUsers() {
+        when(userService.getAllUsers()).thenReturn(Flux.just(
+                new UserResponseDTO(1L, "Alice", "alice@example.com", 25, LocalDateTime.now()),
+                new UserResponseDTO(2L, "Bob", "bob@example.com", 30, LocalDateTime.now())));
+
+        List<UserResponseDTO> users = webTestClient.get().uri("/api/users/stream")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(UserResponseDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(List.of(1L, 2L), users.stream().map(UserResponseDTO::getId).toList());
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - stale version")
+    void updateWithStaleVersion() {
+        when(userService.updateUser(eq(1L), any(UserRequestDTO.class)))
+                .thenReturn(Mono.error(new UserVersionConflictException(1L)));
+
+        webTestClient.put().uri("/api/users/1")
+                .bodyValue(new UserRequestDTO("Alice", "alice@example.com", 25, 3L))
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.version").exists();
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} - ETag of the current version")
+    void userETag() {
+        when(userService.getUserById(1L)).thenReturn(Mono.just(new UserResponseDTO(1L, "Alice", "alice@example.com",
+                25, LocalDateTime.now(), 3L, LocalDateTime.now())));
+
+        webTestClient.get().uri("/api/users/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1-3\"");
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - If-Match version is applied atomically and the new ETag is returned")
+    void updateWithIfMatch() {
+        when(userService.updateUser(eq(1L), argThat(request -> request.getVersion() == 3L)))
+                .thenReturn(Mono.just(true));
+
+        webTestClient.put().uri("/api/users/1")
+                .header("If-Match", "\"1-3\"")
+                .bodyValue(new UserRequestDTO("Alice", "alice@example.com", 26))
+                .exchange()
+                .expectStatus().isNoContent()
+                .expectHeader().valueEquals("ETag", "\"1-4\"");
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - stale If-Match")
+    void updateWithStaleIfMatch() {
+        when(userService.updateUser(eq(1L), any(UserRequestDTO.class)))
+                .thenReturn(Mono.error(new UserVersionConflictException(1L)));
+
+        webTestClient.put().uri("/api/users/1")
+                .header("If-Match", "\"1-2\"")
+                .bodyValue(new UserRequestDTO("Alice", "alice@example.com", 26))
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody()
+                .jsonPath("$['If-Match']").exists();
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - If-Match with a tag of another user")
+    void updateWithForeignIfMatch() {
+        webTestClient.put().uri("/api/users/1")
+                .header("If-Match", "\"2-3\"")
+                .bodyValue(new UserRequestDTO("Alice", "alice@example.com", 26))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        verify(userService, never()).updateUser(any(), any());
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - If-Match: * for a missing user")
+    void updateMissingWithAnyIfMatch() {
+        when(userService.updateUser(eq(1L), argThat(request -> request.getVersion() == null)))
+                .thenReturn(Mono.just(false));
+
+        webTestClient.put().uri("/api/users/1")
+                .header("If-Match", "*")
+                .bodyValue(new UserRequestDTO("Alice", "alice@example.com", 26, 5L))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    @DisplayName("DELETE /api/users/{id} - user is deleted")
+    void deleteUser() {
+        when(userService.deleteUser(1L)).thenReturn(Mono.just(true));
+
+        webTestClient.delete().uri("/api/users/1")
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+}
@@ -1,8 +1,24 @@
 package com.example.userservice.controller;
 
 import com.example.userservice.config.TestJacksonConfig;
+import com.example.userservice.dto.BulkCreateResultDTO;
+import com.example.userservice.dto.BulkItemResultDTO;
+import com.example.userservice.dto.UserBatchDTO;
+import com.example.userservice.dto.UserChangesDTO;
+import com.example.userservice.dto.UserEventDTO;
+import com.example.userservice.dto.UserEventPageDTO;
+import com.example.userservice.dto.UserIdsRequestDTO;
+import com.example.userservice.dto.UserListVersionDTO;
+import com.example.userservice.dto.UserPageDTO;
 import com.example.userservice.dto.UserRequestDTO;
 import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserSearchPageDTO;
+import com.example.userservice.dto.UserVersionDTO;
+import com.example.userservice.exception.UserAlreadyExistsException;
+import com.example.userservice.exception.UserEmailAmbiguousException;
+import com.example.userservice.exception.UserVersionConflictException;
+import com.example.userservice.exception.UserWriteQueueFullException;
+import com.example.userservice.service.UserEventService;
 import com.example.userservice.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
@@ -12,17 +28,30 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.example.userservice.util.TestUtils.jsonFieldMatches;
 import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -38,9 +67,14 @@ public class UserControllerLogicTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserEventService userEventService;
+
     @Autowired
     private ObjectMapper objectMapper;  //для сериализации в JSON
 
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+
     @Test
     @DisplayName("POST /api/users/add - successful creation")
     void successfulUserCreation() throws Exception {
@@ -64,18 +98,157 @@ public class UserControllerLogicTest {
                         startsWith(creationTime.truncatedTo(ChronoUnit.SECONDS).toString())));
     }
 
+    @Test
+    @DisplayName("POST /api/users/add - taken name is answered with 409")
+    void userCreationConflict() throws Exception {
+        when(userService.createUser(any(UserRequestDTO.class)))
+                .thenThrow(new UserAlreadyExistsException(Map.of("name", "Name is already taken")));
+
+        mockMvc.perform(post("/api/users/add")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserRequestDTO("Alice", "alice@example.com", 25))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonField("$.name", "Name is already taken"));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/add - full write queue is answered with 503 and Retry-After")
+    void userCreationQueueFull() throws Exception {
+        when(userService.createUser(any(UserRequestDTO.class))).thenThrow(new UserWriteQueueFullException(10));
+
+        mockMvc.perform(post("/api/users/add")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserRequestDTO("Alice", "alice@example.com", 25))))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/bulk - JSON array is imported with per-item results")
+    void bulkCreationFromArray() throws Exception {
+        List<UserRequestDTO> requests = List.of(
+                new UserRequestDTO("Alice", "alice@example.com", 25),
+                new UserRequestDTO("Bob", "alice@example.com", 30));
+        BulkCreateResultDTO result = BulkCreateResultDTO.of(List.of(
+                BulkItemResultDTO.created(0, 1L),
+                BulkItemResultDTO.failed(1, Map.of("email", "Email is already taken"))));
+
+        when(userService.createUsers(any())).thenReturn(result);
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonField("$.created", 1))
+                .andExpect(jsonField("$.failed", 1))
+                .andExpect(jsonField("$.items[0].status", "CREATED"))
+                .andExpect(jsonField("$.items[0].id", 1L))
+                .andExpect(jsonField("$.items[1].status", "FAILED"))
+                .andExpect(jsonField("$.items[1].errors.email", "Email is already taken"));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/add - CBOR request is answered with CBOR")
+    void userCreationInCbor() throws Exception {
+        LocalDateTime creationTime = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        when(userService.createUser(argThat(request -> "Alice".equals(request.getName()))))
+                .thenReturn(new UserResponseDTO(1L, "Alice", "alice@example.com", 25, creationTime));
+
+        byte[] body = mockMvc.perform(post("/api/users/add")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cborMapper.writeValueAsBytes(new UserRequestDTO("Alice", "alice@example.com", 25))))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        UserResponseDTO created = cborMapper.readValue(body, UserResponseDTO.class);
+        assertEquals(1L, created.getId());
+        assertEquals("alice@example.com", created.getEmail());
+        assertEquals(creationTime, created.getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("POST /api/users/bulk - CBOR array is imported")
+    void bulkCreationFromCbor() throws Exception {
+        List<UserRequestDTO> requests = List.of(
+                new UserRequestDTO("Alice", "alice@example.com", 25),
+                new UserRequestDTO("Bob", "bob@example.com", 30));
+        when(userService.createUsers(any())).thenAnswer(invocation -> {
+            Iterator<UserRequestDTO> values = invocation.getArgument(0);
+            List<BulkItemResultDTO> items = new ArrayList<>();
+            while (values.hasNext()) {
+                items.add(BulkItemResultDTO.created(items.size(), (long) values.next().getAge()));
+            }
+            return BulkCreateResultDTO.of(items);
+        });
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .content(cborMapper.writeValueAsBytes(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonField("$.created", 2))
+                .andExpect(jsonField("$.items[0].id", 25L))
+                .andExpect(jsonField("$.items[1].id", 30L));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/bulk - NDJSON stream is passed to the service line by line")
+    void bulkCreationFromStream() throws Exception {
+        String body = objectMapper.writeValueAsString(new UserRequestDTO("Alice", "alice@example.com", 25)) + "\n"
+                + objectMapper.writeValueAsString(new UserRequestDTO("Bob", "bob@example.com", 30)) + "\n";
+
+        when(userService.createUsers(any())).thenAnswer(invocation -> {
+            Iterator<UserRequestDTO> requests = invocation.getArgument(0);
+            List<BulkItemResultDTO> items = new ArrayList<>();
+            while (requests.hasNext()) {
+                UserRequestDTO request = requests.next();
+                items.add(BulkItemResultDTO.created(items.size(), (long) request.getName().length()));
+            }
+            return BulkCreateResultDTO.of(items);
+        });
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .contentType(UserController.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonField("$.created", 2))
+                .andExpect(jsonField("$.items[0].id", 5L))
+                .andExpect(jsonField("$.items[1].id", 3L));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/bulk - malformed NDJSON line")
+    void bulkCreationFromMalformedStream() throws Exception {
+        when(userService.createUsers(any())).thenAnswer(invocation -> {
+            Iterator<UserRequestDTO> requests = invocation.getArgument(0);
+            while (requests.hasNext()) {
+                requests.next();
+            }
+            return BulkCreateResultDTO.of(List.of());
+        });
+
+        mockMvc.perform(post("/api/users/bulk")
+                        .contentType(UserController.APPLICATION_NDJSON)
+                        .content("{\"name\": \"Alice\", \"email\": \"alice@example.com\", \"age\": 25}\n{\"name\": "))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonFieldMatches("$.body", startsWith("Malformed JSON")));
+    }
+
     @Test
     @DisplayName("GET /api/users/{id} - user is found")
     void userIsFound() throws Exception {
         LocalDateTime creationTime = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
         UserResponseDTO response = new UserResponseDTO(1L, "Alice", "alice@example.com", 25,
-                creationTime);
+                creationTime, 3L, creationTime);
 
         when(userService.getUserById(1L)).thenReturn(Optional.of(response));
 
         mockMvc.perform(get("/api/users/1"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("ETag", "\"1-3\""))
+                .andExpect(header().exists("Last-Modified"))
                 .andExpect(jsonField("$.id", 1L))
                 .andExpect(jsonField("$.name", "Alice"))
                 .andExpect(jsonField("$.email", "alice@example.com"))
@@ -84,6 +257,27 @@ public class UserControllerLogicTest {
                         startsWith(creationTime.truncatedTo(ChronoUnit.SECONDS).toString())));
     }
 
+    @Test
+    @DisplayName("GET /api/users/{id} - Accept: application/cbor returns CBOR varying by Accept")
+    void userIsFoundInCbor() throws Exception {
+        LocalDateTime creationTime = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        UserResponseDTO response = new UserResponseDTO(1L, "Alice", "alice@example.com", 25,
+                creationTime, 3L, creationTime);
+
+        when(userService.getUserById(1L)).thenReturn(Optional.of(response));
+
+        byte[] body = mockMvc.perform(get("/api/users/1").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("ETag", "\"1-3\""))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        UserResponseDTO user = cborMapper.readValue(body, UserResponseDTO.class);
+        assertEquals("Alice", user.getName());
+        assertEquals(3L, user.getVersion());
+    }
+
     @Test
     @DisplayName("GET /api/users/{id} - user is not found")
     void userIsNotFound() throws Exception {
@@ -93,6 +287,95 @@ public class UserControllerLogicTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("GET /api/users/{id} - matching If-None-Match is answered with 304 without loading the user")
+    void userIsNotModified() throws Exception {
+        when(userService.getUserVersion(1L)).thenReturn(Optional.of(new UserVersionDTO(3L, LocalDateTime.now())));
+
+        mockMvc.perform(get("/api/users/1").header("If-None-Match", "\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"1-3\""))
+                .andExpect(content().string(""));
+        verify(userService, never()).getUserById(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} - If-Modified-Since before the last update returns the user")
+    void userIsModifiedSince() throws Exception {
+        LocalDateTime updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        UserResponseDTO response = new UserResponseDTO(1L, "Alice", "alice@example.com", 25,
+                updatedAt.minusDays(1), 4L, updatedAt);
+        when(userService.getUserVersion(1L)).thenReturn(Optional.of(new UserVersionDTO(4L, updatedAt)));
+        when(userService.getUserById(1L)).thenReturn(Optional.of(response));
+
+        mockMvc.perform(get("/api/users/1").header("If-Modified-Since",
+                        DateTimeFormatter.RFC_1123_DATE_TIME.format(updatedAt.minusHours(1)
+                                .atZone(ZoneId.systemDefault()))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-4\""))
+                .andExpect(jsonField("$.version", 4));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/all - matching If-None-Match is answered with 304 without loading the list")
+    void allUsersNotModified() throws Exception {
+        when(userService.getAllUsersVersion()).thenReturn(new UserListVersionDTO(2, 2L, 5L));
+
+        mockMvc.perform(get("/api/users/all").header("If-None-Match", "\"all-2-2-5\""))
+                .andExpect(status().isNotModified());
+        verify(userService, never()).getAllUsers();
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - If-Match version is applied atomically and the new ETag is returned")
+    void updateWithIfMatch() throws Exception {
+        when(userService.updateUser(eq(1L), argThat(request -> request.getVersion() == 3L))).thenReturn(true);
+
+        mockMvc.perform(put("/api/users/1")
+                        .header("If-Match", "\"1-3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserRequestDTO("Alice", "alice@example.com", 26))))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"1-4\""));
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - stale If-Match")
+    void updateWithStaleIfMatch() throws Exception {
+        when(userService.updateUser(eq(1L), any(UserRequestDTO.class))).thenThrow(new UserVersionConflictException(1L));
+
+        mockMvc.perform(put("/api/users/1")
+                        .header("If-Match", "\"1-2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserRequestDTO("Alice", "alice@example.com", 26))))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonFieldMatches("$.If-Match", startsWith("ETag does not match")));
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - If-Match: * for a missing user")
+    void updateMissingWithAnyIfMatch() throws Exception {
+        when(userService.updateUser(eq(1L), argThat(request -> request.getVersion() == null))).thenReturn(false);
+
+        mockMvc.perform(put("/api/users/1")
+                        .header("If-Match", "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UserRequestDTO("Alice", "alice@example.com", 26, 5L))))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - If-Match with a tag of another user")
+    void updateWithForeignIfMatch() throws Exception {
+        mockMvc.perform(put("/api/users/1")
+                        .header("If-Match", "\"2-3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserRequestDTO("Alice", "alice@example.com", 26))))
+                .andExpect(status().isPreconditionFailed());
+        verify(userService, never()).updateUser(any(), any());
+    }
+
     @Test
     @DisplayName("GET /api/users/all - there are some users in the database")
     void getAllUsersDBIsNotEmpty() throws Exception {
@@ -103,11 +386,13 @@ public class UserControllerLogicTest {
             new UserResponseDTO(2L, "Bob", "bob@example.com", 30, creationTime2)
         );
 
+        when(userService.getAllUsersVersion()).thenReturn(new UserListVersionDTO(2, 2L, 0L));
         when(userService.getAllUsers()).thenReturn(users);
 
         mockMvc.perform(get("/api/users/all"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("ETag", "\"all-2-2-0\""))
                 .andExpect(jsonPath("$.length()").value(2))
                 .andExpect(jsonField("$[0].id", 1L))
                 .andExpect(jsonField("$[0].name", "Alice"))
@@ -128,6 +413,7 @@ public class UserControllerLogicTest {
     void getAllUsersDBIsEmpty() throws Exception {
         List<UserResponseDTO> users = new ArrayList<>();
 
+        when(userService.getAllUsersVersion()).thenReturn(new UserListVersionDTO(0, null, null));
         when(userService.getAllUsers()).thenReturn(users);
 
         mockMvc.perform(get("/api/users/all"))
@@ -136,27 +422,229 @@ public class UserControllerLogicTest {
                 .andExpect(jsonPath("$.length()").value(0));
     }
 
+    @Test
+    @DisplayName("GET /api/users - first page with cursor to the next one")
+    void getUsersFirstPage() throws Exception {
+        LocalDateTime creationTime = LocalDateTime.now();
+        UserPageDTO page = new UserPageDTO(List.of(
+                new UserResponseDTO(1L, "Alice", "alice@example.com", 25, creationTime),
+                new UserResponseDTO(2L, "Bob", "bob@example.com", 30, creationTime)
+        ), 2L);
+
+        when(userService.getUsersPage(eq(2), isNull())).thenReturn(page);
+
+        mockMvc.perform(get("/api/users").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonField("$.items[0].id", 1L))
+                .andExpect(jsonField("$.items[1].id", 2L))
+                .andExpect(jsonField("$.nextCursor", 2L));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/batch-get - users in request order and missing ids")
+    void batchGetUsers() throws Exception {
+        LocalDateTime creationTime = LocalDateTime.now();
+        when(userService.getUsersByIds(List.of(2L, 1L, 7L))).thenReturn(new UserBatchDTO(List.of(
+                new UserResponseDTO(2L, "Bob", "bob@example.com", 30, creationTime),
+                new UserResponseDTO(1L, "Alice", "alice@example.com", 25, creationTime)
+        ), List.of(7L)));
+
+        mockMvc.perform(post("/api/users/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserIdsRequestDTO(List.of(2L, 1L, 7L)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonField("$.items[0].id", 2L))
+                .andExpect(jsonField("$.items[1].id", 1L))
+                .andExpect(jsonField("$.missingIds[0]", 7L));
+    }
+
+    @Test
+    @DisplayName("GET /api/users?ids= - ids in the query string are resolved in one call")
+    void batchGetUsersByQuery() throws Exception {
+        when(userService.getUsersByIds(List.of(3L, 1L))).thenReturn(new UserBatchDTO(List.of(
+                new UserResponseDTO(3L, "Carol", "carol@example.com", 41, LocalDateTime.now())
+        ), List.of(1L)));
+
+        mockMvc.perform(get("/api/users").param("ids", "3,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonField("$.items[0].id", 3L))
+                .andExpect(jsonField("$.missingIds[0]", 1L));
+        verify(userService, never()).getUsersPage(any(Integer.class), any());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/changes - upserts and deleted ids after the watermark")
+    void getChanges() throws Exception {
+        LocalDateTime since = LocalDateTime.of(2024, 5, 1, 12, 0);
+        LocalDateTime changedAt = since.plusMinutes(1);
+        UserChangesDTO changes = new UserChangesDTO(List.of(
+                new UserResponseDTO(3L, "Alice", "alice@example.com", 25, since, 1L, changedAt)
+        ), List.of(4L), changedAt.plusSeconds(1), 4L, true);
+
+        when(userService.getChanges(since, 2L, 2)).thenReturn(changes);
+
+        mockMvc.perform(get("/api/users/changes")
+                        .param("since", "2024-05-01T12:00:00")
+                        .param("after", "2")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonField("$.upserts[0].id", 3L))
+                .andExpect(jsonField("$.deletedIds[0]", 4L))
+                .andExpect(jsonField("$.nextSince", "2024-05-01T12:01:01.000"))
+                .andExpect(jsonField("$.nextAfter", 4L))
+                .andExpect(jsonField("$.hasNext", true));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/events - events after the offset with the next offset")
+    void getEvents() throws Exception {
+        LocalDateTime occurredAt = LocalDateTime.now();
+        UserEventPageDTO page = new UserEventPageDTO(List.of(
+                new UserEventDTO(6L, UserEventDTO.Type.UPDATED, 1L, "Alice", "alice@example.com", 26, 1L, occurredAt),
+                new UserEventDTO(7L, UserEventDTO.Type.DELETED, 1L, null, null, null, null, occurredAt)
+        ), 7L);
+
+        when(userEventService.getEvents(5L, 100, Duration.ofSeconds(10))).thenReturn(page);
+
+        mockMvc.perform(get("/api/users/events").param("after", "5").param("wait", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonField("$.items[0].type", "UPDATED"))
+                .andExpect(jsonField("$.items[0].age", 26))
+                .andExpect(jsonField("$.items[1].type", "DELETED"))
+                .andExpect(jsonPath("$.items[1].name").doesNotExist())
+                .andExpect(jsonField("$.nextOffset", 7L));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/by-email/{email} - user is found")
+    void getUserByEmail() throws Exception {
+        when(userService.getUserByEmail("alice@example.com")).thenReturn(Optional.of(
+                new UserResponseDTO(1L, "Alice", "alice@example.com", 25, LocalDateTime.now())));
+
+        mockMvc.perform(get("/api/users/by-email/alice@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonField("$.id", 1L))
+                .andExpect(jsonField("$.email", "alice@example.com"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/by-email/{email} - several users match in different letter case")
+    void getUserByAmbiguousEmail() throws Exception {
+        when(userService.getUserByEmail("ALICE@x.com")).thenThrow(new UserEmailAmbiguousException("ALICE@x.com"));
+
+        mockMvc.perform(get("/api/users/by-email/ALICE@x.com"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.email").exists());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/by-name/{name} - user is not found")
+    void getUserByNameNotFound() throws Exception {
+        when(userService.getUserByName("Nobody")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/users/by-name/Nobody"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/search - filters are passed to the service")
+    void searchUsers() throws Exception {
+        UserSearchPageDTO page = new UserSearchPageDTO(List.of(
+                new UserResponseDTO(1L, "Alice", "alice@corp.com", 31, LocalDateTime.now())
+        ), 0, 10, false);
+
+        when(userService.searchUsers(argThat(filter -> "Al".equals(filter.getNamePrefix())
+                        && "corp.com".equals(filter.getEmailDomain())
+                        && filter.getMinAge() == 30 && filter.getMaxAge() == 40
+                        && LocalDateTime.of(2024, 1, 1, 0, 0).equals(filter.getCreatedFrom())),
+                eq("age,desc"), eq(0), eq(10))).thenReturn(page);
+
+        mockMvc.perform(get("/api/users/search")
+                        .param("name", "Al")
+                        .param("emailDomain", "corp.com")
+                        .param("minAge", "30")
+                        .param("maxAge", "40")
+                        .param("createdFrom", "2024-01-01T00:00:00")
+                        .param("sort", "age,desc")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonField("$.items[0].id", 1L))
+                .andExpect(jsonField("$.hasNext", false));
+    }
+
+    @Test
+    @DisplayName("GET /api/users - last page has no cursor")
+    void getUsersLastPage() throws Exception {
+        UserPageDTO page = new UserPageDTO(List.of(
+                new UserResponseDTO(3L, "Carol", "carol@example.com", 41, LocalDateTime.now())
+        ), null);
+
+        when(userService.getUsersPage(100, 2L)).thenReturn(page);
+
+        mockMvc.perform(get("/api/users").param("after", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonField("$.items[0].id", 3L))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/stream - users are streamed as NDJSON page by page")
+    void streamAllUsers() throws Exception {
+        LocalDateTime creationTime = LocalDateTime.now();
+        when(userService.getUsersPage(any(Integer.class), isNull())).thenReturn(new UserPageDTO(List.of(
+                new UserResponseDTO(1L, "Alice", "alice@example.com", 25, creationTime)
+        ), 1L));
+        when(userService.getUsersPage(any(Integer.class), eq(1L))).thenReturn(new UserPageDTO(List.of(
+                new UserResponseDTO(2L, "Bob", "bob@example.com", 30, creationTime)
+        ), null));
+
+        MvcResult result = mockMvc.perform(get("/api/users/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(UserController.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(1L, objectMapper.readValue(lines[0], UserResponseDTO.class).getId());
+        assertEquals(2L, objectMapper.readValue(lines[1], UserResponseDTO.class).getId());
+    }
+
     @Test
     @DisplayName("PUT /api/users/{id} - successful update")
     void successfulUserUpdate() throws Exception {
         UserRequestDTO request = new UserRequestDTO("Alice", "alice123@example.com", 25);
-        LocalDateTime creationTime = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
-        UserResponseDTO response = new UserResponseDTO(1L, "Alice", "alice@example.com", 25,
-                creationTime);
 
-        when(userService.updateUser(any(Long.class), any(UserRequestDTO.class))).thenReturn(Optional.of(response));
+        when(userService.updateUser(any(Long.class), any(UserRequestDTO.class))).thenReturn(true);
 
         mockMvc.perform(put("/api/users/1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonField("$.id", 1L))
-                .andExpect(jsonField("$.name", "Alice"))
-                .andExpect(jsonField("$.email", "alice@example.com"))
-                .andExpect(jsonField("$.age", 25))
-                .andExpect(jsonFieldMatches("$.createdAt",
-                        startsWith(creationTime.truncatedTo(ChronoUnit.SECONDS).toString())));
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - version does not match")
+    void userUpdateConflict() throws Exception {
+        UserRequestDTO request = new UserRequestDTO("Alice", "alice123@example.com", 25, 3L);
+
+        when(userService.updateUser(any(Long.class), any(UserRequestDTO.class)))
+                .thenThrow(new UserVersionConflictException(1L));
+
+        mockMvc.perform(put("/api/users/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.version").exists());
     }
 
     @Test
@@ -164,7 +652,7 @@ public class UserControllerLogicTest {
     void userUpdateFailed9() throws Exception {
         UserRequestDTO request = new UserRequestDTO("Alice", "alice@example.com", 21);
 
-        when(userService.updateUser(any(Long.class), any(UserRequestDTO.class))).thenReturn(Optional.empty());
+        when(userService.updateUser(any(Long.class), any(UserRequestDTO.class))).thenReturn(false);
 
         mockMvc.perform(put("/api/users/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -0,0 +1,69 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.config.TestJacksonConfig;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.service.UserEventService;
+import com.example.userservice.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//PUT при users.update.require-version=true: обновление без проверки версии не выполняется
+@WebMvcTest(controllers = UserController.class, properties = "users.update.require-version=true")
+@Import(TestJacksonConfig.class)
+public class UserControllerRequiredVersionTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private UserEventService userEventService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - without version or If-Match is rejected with 428")
+    void updateWithoutVersionIsRejected() throws Exception {
+        mockMvc.perform(put("/api/users/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserRequestDTO("Alice", "alice@example.com", 25))))
+                .andExpect(status().isPreconditionRequired())
+                .andExpect(jsonPath("$['If-Match']").exists());
+        verify(userService, never()).updateUser(any(), any());
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} - with a version or If-Match is applied")
+    void updateWithVersionIsApplied() throws Exception {
+        when(userService.updateUser(eq(1L), any(UserRequestDTO.class))).thenReturn(true);
+
+        mockMvc.perform(put("/api/users/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UserRequestDTO("Alice", "alice@example.com", 25, 3L))))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(put("/api/users/1")
+                        .header("If-Match", "\"1-3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserRequestDTO("Alice", "alice@example.com", 25))))
+                .andExpect(status().isNoContent());
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.userservice.controller;
 
 import com.example.userservice.config.TestJacksonConfig;
+import com.example.userservice.dto.UserIdsRequestDTO;
 import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.service.UserEventService;
 import com.example.userservice.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
@@ -13,6 +15,9 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.stream.LongStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -27,6 +32,8 @@ public class UserControllerValidationTest {
 
     @MockBean
     private UserService userService;
+    @MockBean
+    private UserEventService userEventService;
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -244,4 +251,81 @@ public class UserControllerValidationTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.age").value("Age must be at most 120"));
     }
+
+    @Test
+    @DisplayName("GET /api/users - validation failed: limit is less than minimum")
+    void usersPageFailed1() throws Exception {
+        mockMvc.perform(get("/api/users").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.limit").value("Limit must be at least 1"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users - validation failed: limit is greater than maximum")
+    void usersPageFailed2() throws Exception {
+        mockMvc.perform(get("/api/users").param("limit", "1001"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.limit").value("Limit must be at most 1000"));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/batch-get - validation failed: ids are empty")
+    void batchGetFailed1() throws Exception {
+        mockMvc.perform(post("/api/users/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"ids\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.ids").value("Ids are required"));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/batch-get - validation failed: too many ids")
+    void batchGetFailed2() throws Exception {
+        UserIdsRequestDTO request = new UserIdsRequestDTO(LongStream.rangeClosed(1, 1001).boxed().toList());
+
+        mockMvc.perform(post("/api/users/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.ids").value("Ids must contain at most 1000 values"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/events - validation failed: wait is greater than maximum")
+    void eventsFailed1() throws Exception {
+        mockMvc.perform(get("/api/users/events").param("wait", "31"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.wait").value("Wait must be at most 30 seconds"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/search - validation failed: unknown sort field")
+    void searchUsersFailed1() throws Exception {
+        mockMvc.perform(get("/api/users/search").param("sort", "password,asc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.sort").value(
+                        "Sort must be one of id, name, email, age, createdAt optionally followed by ,asc or ,desc"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/search - validation failed: size is greater than maximum")
+    void searchUsersFailed2() throws Exception {
+        mockMvc.perform(get("/api/users/search").param("size", "1001"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.size").value("Size must be at most 1000"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/search - validation failed: offset of the page does not fit the query")
+    void searchUsersFailed3() throws Exception {
+        mockMvc.perform(get("/api/users/search").param("page", "10000000").param("size", "1000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.page").value("Page must be at most 2000000"));
+    }
 }
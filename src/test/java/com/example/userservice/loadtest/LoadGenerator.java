@@ -0,0 +1,148 @@
+package com.example.userservice.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+//Нагрузка по замкнутой модели: concurrency виртуальных потоков без пауз повторяют запрос до истечения времени.
+//Запрос возвращает HTTP-статус, ответы вне диапазона 2xx и 304 считаются ошибками
+public class LoadGenerator {
+    //Ключ сводки по всем операциям смешанной нагрузки
+    public static final String TOTAL = "total";
+
+    public record Result(int concurrency, long requests, long errors, double throughput,
+                         double p50Millis, double p90Millis, double p99Millis, double p999Millis, double maxMillis) {}
+
+    //Операция смешанной нагрузки. Запрос может вернуть null, если выполнить его сейчас нечем
+    //(например, нет пользователя для удаления): такой вызов не учитывается
+    public record Operation(String name, int weight, Callable<Integer> request) {}
+
+    public static Result run(int concurrency, Duration warmup, Duration duration, Callable<Integer> request)
+            throws Exception {
+        return runMix(concurrency, warmup, duration, List.of(new Operation(TOTAL, 1, request))).get(TOTAL);
+    }
+
+    //Каждый поток перед запросом выбирает операцию случайно пропорционально её весу.
+    //Возвращает результаты по операциям в порядке mix и сводку под ключом TOTAL
+    public static Map<String, Result> runMix(int concurrency, Duration warmup, Duration duration,
+                                             List<Operation> mix) throws Exception {
+        measure(concurrency, warmup, mix);
+        long start = System.nanoTime();
+        List<Samples[]> perWorker = measure(concurrency, duration, mix);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        List<Samples> all = new ArrayList<>();
+        for (int op = 0; op < mix.size(); op++) {
+            List<Samples> samples = new ArrayList<>(perWorker.size());
+            for (Samples[] worker : perWorker) {
+                samples.add(worker[op]);
+            }
+            all.addAll(samples);
+            results.put(mix.get(op).name(), summarize(concurrency, samples, seconds));
+        }
+        if (!results.containsKey(TOTAL)) {
+            results.put(TOTAL, summarize(concurrency, all, seconds));
+        }
+        return results;
+    }
+
+    private static List<Samples[]> measure(int concurrency, Duration duration, List<Operation> mix)
+            throws Exception {
+        int[] cumulativeWeights = new int[mix.size()];
+        int totalWeight = 0;
+        for (int op = 0; op < mix.size(); op++) {
+            totalWeight += mix.get(op).weight();
+            cumulativeWeights[op] = totalWeight;
+        }
+        int weightSum = totalWeight;
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Samples[]>> workers = new ArrayList<>(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    Samples[] samples = new Samples[mix.size()];
+                    for (int op = 0; op < samples.length; op++) {
+                        samples[op] = new Samples();
+                    }
+                    while (System.nanoTime() < deadline) {
+                        int pick = ThreadLocalRandom.current().nextInt(weightSum);
+                        int op = 0;
+                        while (cumulativeWeights[op] <= pick) {
+                            op++;
+                        }
+                        long started = System.nanoTime();
+                        Integer status;
+                        try {
+                            status = mix.get(op).request().call();
+                        } catch (Exception e) {
+                            status = -1;
+                        }
+                        if (status != null) {
+                            samples[op].add(System.nanoTime() - started, status);
+                        }
+                    }
+                    return samples;
+                }));
+            }
+            List<Samples[]> results = new ArrayList<>(concurrency);
+            for (Future<Samples[]> worker : workers) {
+                results.add(worker.get());
+            }
+            return results;
+        }
+    }
+
+    private static Result summarize(int concurrency, List<Samples> samples, double seconds) {
+        long errors = 0;
+        int total = 0;
+        for (Samples worker : samples) {
+            errors += worker.errors;
+            total += worker.count;
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (Samples worker : samples) {
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            offset += worker.count;
+        }
+        Arrays.sort(latencies);
+        return new Result(concurrency, total, errors, total / seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), total == 0 ? 0 : latencies[total - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    //Задержки запросов одной операции в одном потоке, в наносекундах
+    private static class Samples {
+        long[] latencies = new long[1024];
+        int count;
+        long errors;
+
+        void add(long latency, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[count++] = latency;
+            if ((status < 200 || status >= 300) && status != 304) {
+                errors++;
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.userservice.loadtest;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.service.UserService;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+//Сравнение задержки GET /api/users/{id} для Spring MVC + JPA (на обычных и виртуальных потоках)
+//и для WebFlux + R2DBC при одинаковой задержке базы. Оба стека работают с одной базой H2.
+//Запуск: mvn test -Pbenchmark -Dtest=ReactiveStackLoadTest [-Dloadtest.concurrency=50,200,800]
+//        [-Dloadtest.duration-seconds=10] [-Dloadtest.db-latency-ms=5]
+@Tag("benchmark")
+public class ReactiveStackLoadTest {
+    private static final int SEEDED_USERS = 1_000;
+    private static final String DATABASE = "reactive-stack";
+
+    private final int[] concurrencyLevels = Arrays.stream(System.getProperty("loadtest.concurrency", "50,200,800")
+            .split(",")).mapToInt(level -> Integer.parseInt(level.trim())).toArray();
+    private final Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 10));
+    private final Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 3));
+    private final long dbLatencyMillis = Long.getLong("loadtest.db-latency-ms", 5L);
+
+    @Test
+    @DisplayName("GET /api/users/{id}: servlet stack vs reactive stack")
+    void compareStacks() throws Exception {
+        //Схему и данные создаёт экземпляр на JPA, остальные экземпляры подключаются к той же базе
+        try (ConfigurableApplicationContext seeder = TestInstances.start(TestInstances.h2Url(DATABASE), Map.of())) {
+            UserService userService = seeder.getBean(UserService.class);
+            long firstId = userService.createUser(new UserRequestDTO("user0", "user0@example.com", 30)).getId();
+            for (int i = 1; i < SEEDED_USERS; i++) {
+                userService.createUser(new UserRequestDTO("user" + i, "user" + i + "@example.com", 30));
+            }
+
+            System.out.printf("%n%-9s %11s %10s %8s %10s %9s %9s %9s %9s%n", "stack", "concurrency", "requests",
+                    "errors", "req/sec", "p50 ms", "p90 ms", "p99 ms", "max ms");
+            run("platform", firstId, servlet(false));
+            run("virtual", firstId, servlet(true));
+            run("reactive", firstId, () -> TestInstances.start(TestInstances.h2Url(DATABASE),
+                    Map.of("spring.profiles.active", "reactive",
+                            "spring.main.web-application-type", "reactive",
+                            "spring.r2dbc.url", "r2dbc:h2:mem:///" + DATABASE + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                            "spring.r2dbc.username", "sa",
+                            "server.port", 0,
+                            "loadtest.db-latency-ms", dbLatencyMillis),
+                    SlowR2dbcConfig.class));
+        }
+    }
+
+    private InstanceStarter servlet(boolean virtualThreads) {
+        return () -> TestInstances.start(TestInstances.h2Url(DATABASE),
+                Map.of("spring.main.web-application-type", "servlet",
+                        "spring.jpa.hibernate.ddl-auto", "none",
+                        "server.port", 0,
+                        "users.virtual-threads.enabled", virtualThreads,
+                        //Кэш отключён, чтобы каждый запрос доходил до базы
+                        "users.cache.maximum-size", 0,
+                        "loadtest.db-latency-ms", dbLatencyMillis),
+                SlowJdbcConfig.class);
+    }
+
+    private void run(String stack, long firstId, InstanceStarter starter) throws Exception {
+        try (ConfigurableApplicationContext context = starter.start()) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/api/users/";
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            for (int concurrency : concurrencyLevels) {
+                LoadGenerator.Result result = LoadGenerator.run(concurrency, warmup, duration, () -> {
+                    long id = firstId + ThreadLocalRandom.current().nextInt(SEEDED_USERS);
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + id)).GET().build();
+                    return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                });
+                System.out.printf("%-9s %11d %10d %8d %10.0f %9.1f %9.1f %9.1f %9.1f%n", stack,
+                        result.concurrency(), result.requests(), result.errors(), result.throughput(),
+                        result.p50Millis(), result.p90Millis(), result.p99Millis(), result.maxMillis());
+            }
+        }
+    }
+
+    private interface InstanceStarter {
+        ConfigurableApplicationContext start();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.userservice.loadtest;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+//Встроенная H2 отвечает мгновенно, поэтому для нагрузочных тестов перед каждым выполнением SQL добавляется
+//задержка loadtest.db-latency-ms, имитирующая сетевой round trip до PostgreSQL
+@TestConfiguration
+public class SlowJdbcConfig {
+    @Bean
+    public static BeanPostProcessor slowJdbcPostProcessor(Environment environment) {
+        long latencyMillis = environment.getProperty("loadtest.db-latency-ms", Long.class, 5L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && latencyMillis > 0) {
+                    return new SlowDataSource(dataSource, latencyMillis);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static class SlowDataSource extends DelegatingDataSource {
+        private final long latencyMillis;
+
+        SlowDataSource(DataSource target, long latencyMillis) {
+            super(target);
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return slow(super.getConnection(), Connection.class);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T slow(T target, Class<T> type) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    Thread.sleep(latencyMillis);
+                }
+                try {
+                    Object result = method.invoke(target, args);
+                    if (result instanceof Statement statement) {
+                        Class<? extends Statement> statementType = method.getReturnType().asSubclass(Statement.class);
+                        return slow(statementType.cast(statement), (Class<Statement>) statementType);
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.userservice.loadtest;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+
+//Аналог SlowJdbcConfig для реактивного стека: выполнение каждого запроса откладывается на
+//loadtest.db-latency-ms без блокировки потока, как при ожидании ответа PostgreSQL по сети
+@TestConfiguration
+public class SlowR2dbcConfig {
+    @Bean
+    @Primary
+    public DatabaseClient slowDatabaseClient(ConnectionFactory connectionFactory, Environment environment) {
+        Duration latency = Duration.ofMillis(environment.getProperty("loadtest.db-latency-ms", Long.class, 5L));
+        return DatabaseClient.create(latency.isZero()
+                ? connectionFactory
+                : proxy(ConnectionFactory.class, connectionFactory, (method, result) ->
+                        method.equals("create")
+                                ? Mono.from((Publisher<?>) result)
+                                        .map(connection -> slowConnection((Connection) connection, latency))
+                                : result));
+    }
+
+    private static Connection slowConnection(Connection connection, Duration latency) {
+        return proxy(Connection.class, connection, (method, result) ->
+                method.equals("createStatement") ? slowStatement((Statement) result, latency) : result);
+    }
+
+    private static Statement slowStatement(Statement statement, Duration latency) {
+        Statement[] self = new Statement[1];
+        self[0] = proxy(Statement.class, statement, (method, result) -> {
+            if (method.equals("execute")) {
+                return Mono.delay(latency).thenMany(Flux.from((Publisher<?>) result));
+            }
+            //Методы-построители возвращают сам Statement, вместо него отдаём обёртку
+            return result == statement ? self[0] : result;
+        });
+        return self[0];
+    }
+
+    private interface ResultDecorator {
+        Object decorate(String method, Object result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, ResultDecorator decorator) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            try {
+                return decorator.decorate(method.getName(), method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
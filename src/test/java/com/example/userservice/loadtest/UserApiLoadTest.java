@@ -0,0 +1,265 @@
+package com.example.userservice.loadtest;
+
+import com.example.userservice.dto.BulkCreateResultDTO;
+import com.example.userservice.dto.BulkItemResultDTO;
+import com.example.userservice.dto.UserIdsRequestDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.service.UserService;
+import com.example.userservice.util.TestInstances;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+//Смешанная нагрузка на все эндпоинты /api/users: приложение поднимается поверх встроенной H2, заполняется
+//loadtest.users пользователями, после чего клиенты выполняют чтения и записи в пропорциях набора loadtest.mix.
+//Отчёт с перцентилями задержки по каждой операции пишется в target/loadtest/<mix>-<concurrency>.json;
+//при -Dloadtest.baseline=<прежний отчёт> выводится изменение пропускной способности и p99 относительно него.
+//Запуск: mvn test -Pbenchmark -Dtest=UserApiLoadTest [-Dloadtest.mix=read-heavy|write-heavy|get=60,add=40]
+//        [-Dloadtest.users=10000] [-Dloadtest.concurrency=50] [-Dloadtest.duration-seconds=30]
+//        [-Dloadtest.db-latency-ms=0] [-Dloadtest.baseline=target/loadtest/read-heavy-50.json]
+@Tag("benchmark")
+public class UserApiLoadTest {
+    //Веса операций в готовых наборах; операции, которых нет в наборе, не выполняются
+    private static final Map<String, Map<String, Integer>> MIXES = Map.of(
+            "read-heavy", weights("get=30,get-conditional=10,page=8,search=8,by-email=6,by-name=4,batch-get=4,changes=3," +
+                    "events=3,all=1,stream=1,add=10,bulk=2,update=10,delete=4"),
+            "write-heavy", weights("get=15,get-conditional=5,page=3,search=3,by-email=3,by-name=2,changes=2," +
+                    "events=2,add=25,bulk=5,update=25,delete=10"));
+    private static final int BULK_SIZE = 10;
+    private static final int BATCH_GET_SIZE = 20;
+
+    private final int users = Integer.getInteger("loadtest.users", 10_000);
+    private final int[] concurrencyLevels = Arrays.stream(System.getProperty("loadtest.concurrency", "50")
+            .split(",")).mapToInt(level -> Integer.parseInt(level.trim())).toArray();
+    private final Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30));
+    private final Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5));
+    private final String mixName = System.getProperty("loadtest.mix", "read-heavy");
+    private final String baseline = System.getProperty("loadtest.baseline");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    //Пользователи, созданные во время нагрузки: их удаляет операция delete, не трогая заполненные данные
+    private final Queue<Long> disposableIds = new ConcurrentLinkedQueue<>();
+    private final Map<Long, String> etags = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private long[] seededIds;
+    private String baseUrl;
+    private String changesSince;
+
+    @Test
+    @DisplayName("All /api/users endpoints under a read/write mix")
+    void runMix() throws Exception {
+        Map<String, Integer> weights = MIXES.containsKey(mixName) ? MIXES.get(mixName) : weights(mixName);
+        try (ConfigurableApplicationContext context = TestInstances.start(TestInstances.h2Url("user-api-load"),
+                Map.of("spring.main.web-application-type", "servlet",
+                        "server.port", 0,
+                        "loadtest.db-latency-ms", Long.getLong("loadtest.db-latency-ms", 0L)),
+                SlowJdbcConfig.class)) {
+            seed(context.getBean(UserService.class));
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/users";
+
+            Map<String, Callable<Integer>> operations = operations();
+            if (!operations.keySet().containsAll(weights.keySet())) {
+                throw new IllegalArgumentException("Unknown operation in mix " + weights.keySet()
+                        + ", available: " + operations.keySet());
+            }
+            List<LoadGenerator.Operation> mix = new ArrayList<>();
+            operations.forEach((name, request) -> {
+                int weight = weights.getOrDefault(name, 0);
+                if (weight > 0) {
+                    mix.add(new LoadGenerator.Operation(name, weight, request));
+                }
+            });
+
+            new File("target/loadtest").mkdirs();
+            for (int concurrency : concurrencyLevels) {
+                Map<String, LoadGenerator.Result> results = LoadGenerator.runMix(concurrency, warmup, duration, mix);
+                print(concurrency, results);
+                File report = new File("target/loadtest/" + mixName.replaceAll("[^\\w-]", "_") + "-"
+                        + concurrency + ".json");
+                objectMapper.writeValue(report, new Report(mixName, users, concurrency, duration.toSeconds(),
+                        weights, results));
+                System.out.println("report: " + report.getPath());
+                if (baseline != null) {
+                    compare(results, objectMapper.readTree(new File(baseline)));
+                }
+            }
+        }
+    }
+
+    private void seed(UserService userService) {
+        Iterator<UserRequestDTO> requests = IntStream.range(0, users)
+                .mapToObj(i -> new UserRequestDTO("load" + i, "load" + i + "@example.com", 18 + i % 60))
+                .iterator();
+        BulkCreateResultDTO result = userService.createUsers(requests);
+        seededIds = result.getItems().stream().mapToLong(BulkItemResultDTO::getId).toArray();
+        changesSince = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).toString();
+    }
+
+    private Map<String, Callable<Integer>> operations() {
+        Map<String, Callable<Integer>> operations = new LinkedHashMap<>();
+        operations.put("get", () -> {
+            long id = randomSeededId();
+            HttpResponse<Void> response = send(get("/" + id));
+            response.headers().firstValue("ETag").ifPresent(etag -> etags.put(id, etag));
+            return response.statusCode();
+        });
+        operations.put("get-conditional", () -> {
+            long id = randomSeededId();
+            String etag = etags.get(id);
+            HttpRequest.Builder request = get("/" + id);
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            HttpResponse<Void> response = send(request);
+            response.headers().firstValue("ETag").ifPresent(fresh -> etags.put(id, fresh));
+            return response.statusCode();
+        });
+        operations.put("page", () -> send(get("?limit=100&after=" + randomSeededId())).statusCode());
+        operations.put("search", () -> {
+            int minAge = 18 + ThreadLocalRandom.current().nextInt(55);
+            return send(get("/search?emailDomain=example.com&minAge=" + minAge + "&maxAge=" + (minAge + 5)
+                    + "&sort=age,desc&size=20")).statusCode();
+        });
+        operations.put("by-email", () -> send(get("/by-email/" + seededName() + "@example.com")).statusCode());
+        operations.put("by-name", () -> send(get("/by-name/" + seededName())).statusCode());
+        operations.put("batch-get", () -> client.send(post("/batch-get", new UserIdsRequestDTO(
+                LongStream.generate(this::randomSeededId).limit(BATCH_GET_SIZE).boxed().toList())),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+        operations.put("changes", () -> send(get("/changes?limit=100&since="
+                + URLEncoder.encode(changesSince, StandardCharsets.UTF_8))).statusCode());
+        operations.put("events", () -> send(get("/events?limit=100")).statusCode());
+        operations.put("all", () -> send(get("/all")).statusCode());
+        operations.put("stream", () -> send(get("/stream")).statusCode());
+        operations.put("add", () -> {
+            HttpResponse<String> response = client.send(post("/add", newUser()),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 201) {
+                disposableIds.add(objectMapper.readTree(response.body()).get("id").asLong());
+            }
+            return response.statusCode();
+        });
+        operations.put("bulk", () -> {
+            List<Map<String, Object>> batch = new ArrayList<>(BULK_SIZE);
+            for (int i = 0; i < BULK_SIZE; i++) {
+                batch.add(newUser());
+            }
+            HttpResponse<String> response = client.send(post("/bulk", batch), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200) {
+                for (JsonNode item : objectMapper.readTree(response.body()).get("items")) {
+                    if (item.hasNonNull("id")) {
+                        disposableIds.add(item.get("id").asLong());
+                    }
+                }
+            }
+            return response.statusCode();
+        });
+        operations.put("update", () -> {
+            int index = ThreadLocalRandom.current().nextInt(users);
+            Map<String, Object> user = Map.of("name", "load" + index, "email", "load" + index + "@example.com",
+                    "age", 18 + ThreadLocalRandom.current().nextInt(60));
+            return send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + seededIds[index]))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(user)))).statusCode();
+        });
+        operations.put("delete", () -> {
+            Long id = disposableIds.poll();
+            if (id == null) {
+                return null;
+            }
+            return send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + id)).DELETE()).statusCode();
+        });
+        return operations;
+    }
+
+    private long randomSeededId() {
+        return seededIds[ThreadLocalRandom.current().nextInt(seededIds.length)];
+    }
+
+    private String seededName() {
+        return "load" + ThreadLocalRandom.current().nextInt(users);
+    }
+
+    private Map<String, Object> newUser() {
+        long n = sequence.incrementAndGet();
+        return Map.of("name", "new" + n, "email", "new" + n + "@example.com", "age", 30);
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+    }
+
+    private HttpRequest post(String path, Object body) throws Exception {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private HttpResponse<Void> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private void print(int concurrency, Map<String, LoadGenerator.Result> results) {
+        System.out.printf("%nmix %s, %d users, %d clients, %d s%n", mixName, users, concurrency,
+                duration.toSeconds());
+        System.out.printf("%-16s %10s %8s %10s %9s %9s %9s %9s %9s%n", "operation", "requests", "errors",
+                "req/sec", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        results.forEach((name, result) -> System.out.printf("%-16s %10d %8d %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, result.requests(), result.errors(), result.throughput(), result.p50Millis(),
+                result.p90Millis(), result.p99Millis(), result.p999Millis(), result.maxMillis()));
+    }
+
+    //Изменение относительно прежнего отчёта: рост req/sec и снижение p99 - улучшение
+    private void compare(Map<String, LoadGenerator.Result> results, JsonNode baselineReport) {
+        JsonNode previous = baselineReport.get("results");
+        System.out.printf("%nvs %s%n%-16s %12s %12s%n", baseline, "operation", "req/sec", "p99");
+        results.forEach((name, result) -> {
+            JsonNode before = previous.get(name);
+            if (before != null) {
+                System.out.printf("%-16s %+11.1f%% %+11.1f%%%n", name,
+                        change(before.get("throughput").asDouble(), result.throughput()),
+                        change(before.get("p99Millis").asDouble(), result.p99Millis()));
+            }
+        });
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before * 100;
+    }
+
+    private static Map<String, Integer> weights(String spec) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.split("=");
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private record Report(String mix, int users, int concurrency, long durationSeconds, Map<String, Integer> weights,
+                          Map<String, LoadGenerator.Result> results) {}
+}
@@ -0,0 +1,273 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserSearchFilter;
+import com.example.userservice.dto.UserTombstoneDTO;
+import com.example.userservice.exception.UserAlreadyExistsException;
+import com.example.userservice.model.User;
+import com.example.userservice.service.UserService;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryUserRepositoryTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private static User user(String name, String email, int age) {
+        return new User(name, email, age, NOW);
+    }
+
+    @Test
+    @DisplayName("insertAll - taken name or email rejects the whole batch")
+    void uniqueNameAndEmail() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        repository.insertAll(List.of(user("alice", "alice@example.com", 25)));
+
+        assertThrows(DuplicateKeyException.class, () -> repository.insertAll(List.of(
+                user("bob", "bob@example.com", 30), user("alice", "other@example.com", 40))));
+        assertThrows(DuplicateKeyException.class, () -> repository.insertAll(List.of(
+                user("carol", "alice@example.com", 35))));
+
+        assertEquals(List.of("alice"), repository.findAllResponses().stream().map(UserResponseDTO::getName).toList());
+        assertEquals(List.of(), repository.findExistingNames(List.of("bob", "carol")));
+        assertTrue(repository.findByName("bob").isEmpty());
+    }
+
+    @Test
+    @DisplayName("updateUser - values of another user are rejected, own values are released after a change")
+    void updateKeepsIndexesConsistent() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        List<User> users = repository.insertAll(List.of(user("alice", "alice@example.com", 25),
+                user("bob", "bob@example.com", 30)));
+        long alice = users.get(0).getId();
+        long bob = users.get(1).getId();
+
+        assertThrows(DuplicateKeyException.class,
+                () -> repository.updateUser(alice, "bob", "alice@example.com", "example.com", 26, NOW));
+        assertEquals(1, repository.updateUser(alice, "alicia", "Alicia@Example.com", "example.com", 26, NOW));
+
+        assertEquals(alice, repository.findByName("alicia").orElseThrow().getId());
+        assertTrue(repository.findByName("alice").isEmpty());
+        assertEquals(List.of(alice), repository.findByNormalizedEmail("alicia@example.com").stream()
+                .map(UserResponseDTO::getId).toList());
+        assertEquals(1, repository.updateUser(bob, "alice", "alice@example.com", "example.com", 31, NOW));
+
+        assertEquals(0, repository.updateUserIfVersion(alice, "alicia", "alicia@example.com", "example.com", 27,
+                NOW, 0));
+        assertEquals(1, repository.updateUserIfVersion(alice, "alicia", "alicia@example.com", "example.com", 27,
+                NOW, 1));
+        assertEquals(2, repository.findVersionById(alice).orElseThrow().version());
+    }
+
+    @Test
+    @DisplayName("deleteUser - leaves a tombstone and frees the name and email")
+    void deleteLeavesTombstone() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        long id = repository.insertAll(List.of(user("alice", "alice@example.com", 25))).get(0).getId();
+
+        assertEquals(1, repository.deleteUser(id, NOW.plusMinutes(1)));
+        assertEquals(0, repository.deleteUser(id, NOW.plusMinutes(2)));
+
+        assertEquals(List.of(new UserTombstoneDTO(id, NOW.plusMinutes(1))),
+                repository.findDeletedAfter(NOW, 0, NOW.plusHours(1), 10));
+        assertTrue(repository.findChangedAfter(LocalDateTime.MIN, 0, NOW.plusHours(1), 10).isEmpty());
+        repository.insertAll(List.of(user("alice", "alice@example.com", 25)));
+    }
+
+    @Test
+    @DisplayName("search and paging - same order and filters as the database")
+    void searchAndPaging() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        for (int i = 0; i < 10; i++) {
+            repository.insertAll(List.of(user("user" + i, "user" + i + (i % 2 == 0 ? "@corp.com" : "@mail.com"),
+                    20 + i % 3)));
+        }
+
+        UserSearchFilter filter = new UserSearchFilter();
+        filter.setEmailDomain("CORP.com");
+        filter.setMinAge(21);
+        assertEquals(List.of("user2", "user8", "user4"), repository.search(filter, Sort.by(Sort.Direction.DESC, "age"),
+                0, 10).stream().map(UserResponseDTO::getName).toList());
+        filter = new UserSearchFilter();
+        filter.setNamePrefix("user");
+        assertEquals(List.of("user3", "user4"), repository.search(filter, Sort.by("name"), 3, 2).stream()
+                .map(UserResponseDTO::getName).toList());
+
+        long first = repository.findPageAfter(0, 1).get(0).getId();
+        assertEquals(List.of(first + 1, first + 2), repository.findPageAfter(first, 2).stream()
+                .map(UserResponseDTO::getId).toList());
+        assertEquals(10, repository.findListVersion().count());
+    }
+
+    @Test
+    @DisplayName("concurrent writers - one name is given to exactly one user, one version to one update")
+    void concurrentWriters() throws Exception {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        int writers = 16;
+        List<String> emails = new ArrayList<>();
+        List<Callable<Boolean>> inserts = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            String email = "user" + i + "@example.com";
+            emails.add(email);
+            inserts.add(() -> {
+                try {
+                    repository.insertAll(List.of(user("same", email, 30)));
+                    return true;
+                } catch (DuplicateKeyException e) {
+                    return false;
+                }
+            });
+        }
+        assertEquals(1, count(inserts));
+
+        long id = repository.findByName("same").orElseThrow().getId();
+        List<Callable<Boolean>> updates = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            int age = i;
+            updates.add(() -> repository.updateUserIfVersion(id, "same", "same@example.com", "example.com", age,
+                    NOW, 0) == 1);
+        }
+        assertEquals(1, count(updates));
+        assertEquals(1, repository.findVersionById(id).orElseThrow().version());
+        //Прежний email победителя освобождён, а email проигравших вставок не заняты вовсе
+        assertEquals(List.of(), repository.findExistingEmails(emails));
+        assertEquals(List.of("same@example.com"), repository.findExistingEmails(List.of("same@example.com")));
+    }
+
+    private static long count(List<Callable<Boolean>> tasks) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(tasks.size())) {
+            long succeeded = 0;
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        }
+    }
+
+    @Test
+    @DisplayName("journal - users, versions and tombstones survive a restart")
+    void journalRestoresState(@TempDir Path directory) throws Exception {
+        Path journal = directory.resolve("users.journal");
+        long alice;
+        long bob;
+        try (InMemoryUserRepository repository = new InMemoryUserRepository(journal)) {
+            List<User> users = repository.insertAll(List.of(user("alice", "alice@example.com", 25),
+                    user("bob", "bob@example.com", 30)));
+            alice = users.get(0).getId();
+            bob = users.get(1).getId();
+            repository.updateUser(alice, "alicia", "alicia@example.com", "example.com", 26, NOW.plusMinutes(1));
+            repository.deleteUser(bob, NOW.plusMinutes(2));
+        }
+
+        try (InMemoryUserRepository repository = new InMemoryUserRepository(journal)) {
+            UserResponseDTO restored = repository.findResponseById(alice).orElseThrow();
+            assertEquals("alicia", restored.getName());
+            assertEquals(1, restored.getVersion());
+            assertEquals(NOW.plusMinutes(1), restored.getUpdatedAt());
+            assertTrue(repository.findResponseById(bob).isEmpty());
+            assertEquals(List.of(new UserTombstoneDTO(bob, NOW.plusMinutes(2))),
+                    repository.findDeletedAfter(NOW, 0, NOW.plusHours(1), 10));
+            assertThrows(DuplicateKeyException.class,
+                    () -> repository.insertAll(List.of(user("alicia", "new@example.com", 40))));
+            assertTrue(repository.insertAll(List.of(user("bob", "bob@example.com", 30))).get(0).getId() > bob);
+        }
+    }
+
+    @Test
+    @DisplayName("journal with fsync=always - every concurrent write is on disk when it returns")
+    void groupCommitPersistsConcurrentWrites(@TempDir Path directory) throws Exception {
+        Path journal = directory.resolve("users.journal");
+        int writers = 16;
+        try (InMemoryUserRepository repository = new InMemoryUserRepository(journal,
+                InMemoryUserRepository.JournalFsync.ALWAYS, Duration.ofMillis(100))) {
+            List<Callable<Boolean>> writes = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                String name = "user" + i;
+                writes.add(() -> {
+                    long id = repository.insertAll(List.of(user(name, name + "@example.com", 30))).get(0).getId();
+                    return repository.updateUser(id, name, name + "@example.com", "example.com", 31, NOW) == 1;
+                });
+            }
+            assertEquals(writers, count(writes));
+        }
+
+        try (InMemoryUserRepository repository = new InMemoryUserRepository(journal)) {
+            List<UserResponseDTO> users = repository.findAllResponses();
+            assertEquals(writers, users.size());
+            assertTrue(users.stream().allMatch(user -> user.getAge() == 31 && user.getVersion() == 1));
+        }
+    }
+
+    @Test
+    @DisplayName("journal - a torn last record is dropped, earlier records and new appends survive")
+    void journalDropsTornRecord(@TempDir Path directory) throws Exception {
+        Path journal = directory.resolve("users.journal");
+        long alice;
+        try (InMemoryUserRepository repository = new InMemoryUserRepository(journal)) {
+            alice = repository.insertAll(List.of(user("alice", "alice@example.com", 25))).get(0).getId();
+            repository.insertAll(List.of(user("bob", "bob@example.com", 30)));
+        }
+        //Последний ненулевой байт файла - конец email последней записи
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate((int) channel.size());
+            channel.read(bytes, 0);
+            int last = bytes.capacity() - 1;
+            while (bytes.get(last) == 0) {
+                last--;
+            }
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), last);
+        }
+
+        try (InMemoryUserRepository repository = new InMemoryUserRepository(journal)) {
+            assertEquals(List.of("alice"), repository.findAllResponses().stream().map(UserResponseDTO::getName).toList());
+            repository.insertAll(List.of(user("carol", "carol@example.com", 35)));
+            repository.updateUser(alice, "alicia", "alicia@example.com", "example.com", 26, NOW);
+        }
+        try (InMemoryUserRepository repository = new InMemoryUserRepository(journal)) {
+            assertEquals(List.of("alicia", "carol"), repository.findAllResponses().stream()
+                    .map(UserResponseDTO::getName).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("users.storage=memory - the application keeps users in memory and restores them from the journal")
+    void applicationUsesInMemoryStorage(@TempDir Path directory) {
+        Map<String, Object> properties = Map.of("users.storage", "memory",
+                "users.storage.journal", directory.resolve("users.journal").toString());
+        String url = TestInstances.h2Url("in-memory-storage");
+        long id;
+        try (ConfigurableApplicationContext context = TestInstances.start(url, properties)) {
+            UserService userService = context.getBean(UserService.class);
+            id = userService.createUser(new UserRequestDTO("alice", "alice@example.com", 25)).getId();
+            assertThrows(UserAlreadyExistsException.class,
+                    () -> userService.createUser(new UserRequestDTO("alice", "other@example.com", 30)));
+            assertEquals(0, context.getBean(UserRepository.class).count());
+        }
+        try (ConfigurableApplicationContext context = TestInstances.start(url, properties)) {
+            assertEquals("alice", context.getBean(UserService.class).getUserById(id).orElseThrow().getName());
+        }
+    }
+}
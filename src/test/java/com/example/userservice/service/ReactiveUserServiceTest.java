@@ -0,0 +1,141 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserEventDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.exception.UserVersionConflictException;
+import com.example.userservice.model.User;
+import com.example.userservice.repository.ReactiveUserRepository;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReactiveUserServiceTest {
+    private static final String DATABASE = "reactive-user-service";
+
+    private static ConfigurableApplicationContext schemaContext;
+    private static ConfigurableApplicationContext context;
+    private static ReactiveUserService userService;
+
+    @BeforeAll
+    static void startInstance() {
+        //Реактивный стек не создаёт схему сам, её создаёт экземпляр на JPA поверх той же базы
+        schemaContext = TestInstances.start(TestInstances.h2Url(DATABASE), Map.of());
+        context = TestInstances.start(TestInstances.h2Url(DATABASE), Map.of(
+                "spring.profiles.active", "reactive",
+                "spring.main.web-application-type", "none",
+                "spring.r2dbc.url", "r2dbc:h2:mem:///" + DATABASE + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "spring.r2dbc.username", "sa"));
+        userService = context.getBean(ReactiveUserService.class);
+    }
+
+    @AfterAll
+    static void stopInstance() {
+        context.close();
+        schemaContext.close();
+    }
+
+    @Test
+    @DisplayName("createUser - users get distinct ids and are readable back")
+    void createAndRead() {
+        UserResponseDTO first = userService.createUser(new UserRequestDTO("Alice", "alice@example.com", 25)).block();
+        UserResponseDTO second = userService.createUser(new UserRequestDTO("Bob", "bob@example.com", 30)).block();
+
+        assertNotEquals(first.getId(), second.getId());
+        UserResponseDTO found = userService.getUserById(first.getId()).block();
+        assertEquals("alice@example.com", found.getEmail());
+        assertEquals(0L, found.getVersion());
+    }
+
+    @Test
+    @DisplayName("nextId - every subscription gets a new id, an unsubscribed Mono takes none")
+    void nextIdIsTakenOnSubscription() {
+        ReactiveUserRepository repository = context.getBean(ReactiveUserRepository.class);
+        //Доходим до конца диапазона, чтобы следующие id шли подряд из нового
+        while (repository.nextId().block() % User.ID_ALLOCATION_SIZE != 1) {
+        }
+        Mono<Long> nextId = repository.nextId();
+        repository.nextId();
+
+        long first = nextId.block();
+        long second = nextId.block();
+
+        assertNotEquals(first, second);
+        assertEquals(second + 1, repository.nextId().block());
+    }
+
+    @Test
+    @DisplayName("getUsersPage - pages follow the cursor without gaps")
+    void pagesFollowCursor() {
+        for (int i = 0; i < 5; i++) {
+            userService.createUser(new UserRequestDTO("page" + i, "page" + i + "@example.com", 20)).block();
+        }
+        long total = userService.getAllUsers().count().block();
+
+        long seen = 0;
+        Long cursor = null;
+        do {
+            UserPageDTO page = userService.getUsersPage(2, cursor).block();
+            seen += page.getItems().size();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(total, seen);
+    }
+
+    @Test
+    @DisplayName("updateUser - stale version is rejected, missing user is not updated")
+    void updateWithVersion() {
+        UserResponseDTO created = userService.createUser(new UserRequestDTO("Carol", "carol@example.com", 41)).block();
+
+        assertTrue(userService.updateUser(created.getId(),
+                new UserRequestDTO("Carol", "carol@example.com", 42, 0L)).block());
+        assertThrows(UserVersionConflictException.class, () -> userService.updateUser(created.getId(),
+                new UserRequestDTO("Carol", "carol@example.com", 43, 0L)).block());
+        assertFalse(userService.updateUser(-1L, new UserRequestDTO("Nobody", "nobody@example.com", 30, 0L)).block());
+        assertEquals(42, userService.getUserById(created.getId()).block().getAge());
+    }
+
+    @Test
+    @DisplayName("deleteUser - user is deleted once")
+    void deleteUser() {
+        UserResponseDTO created = userService.createUser(new UserRequestDTO("Dave", "dave@example.com", 35)).block();
+
+        assertTrue(userService.deleteUser(created.getId()).block());
+        assertFalse(userService.deleteUser(created.getId()).block());
+        assertNull(userService.getUserById(created.getId()).block());
+    }
+
+    @Test
+    @DisplayName("create, update and delete - events are written to user_events")
+    void mutationsWriteEvents() {
+        //Журнал читается сервисом экземпляра на JPA поверх той же базы
+        UserEventService userEventService = schemaContext.getBean(UserEventService.class);
+        long after = userEventService.getLastEventId();
+        UserResponseDTO created = userService.createUser(new UserRequestDTO("Erin", "erin@example.com", 28)).block();
+        assertTrue(userService.updateUser(created.getId(), new UserRequestDTO("Erin", "erin@corp.com", 29)).block());
+        assertTrue(userService.updateUser(created.getId(),
+                new UserRequestDTO("Erin", "erin@corp.com", 30, 1L)).block());
+        assertTrue(userService.deleteUser(created.getId()).block());
+
+        List<UserEventDTO> events = userEventService.getEvents(after, 100, Duration.ZERO).getItems();
+
+        assertEquals(List.of(UserEventDTO.Type.CREATED, UserEventDTO.Type.UPDATED, UserEventDTO.Type.UPDATED,
+                UserEventDTO.Type.DELETED), events.stream().map(UserEventDTO::getType).toList());
+        assertTrue(events.stream().allMatch(event -> created.getId().equals(event.getUserId())));
+        assertEquals(List.of(0L, 1L, 2L), events.subList(0, 3).stream().map(UserEventDTO::getVersion).toList());
+        assertEquals("erin@corp.com", events.get(1).getEmail());
+        assertEquals(30, events.get(2).getAge());
+        assertNull(events.get(3).getEmail());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.model.User;
+import com.example.userservice.repository.UserStore;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UserBatchWriterTest {
+    private final UserStore userStore = mock(UserStore.class);
+    private final UserMapper userMapper = mock(UserMapper.class);
+    private final UserBatchWriter writer = new UserBatchWriter(userStore, userMapper, mock(UserEventService.class),
+            mock(EntityManager.class), mock(PlatformTransactionManager.class));
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        when(userMapper.toEntity(any(UserRequestDTO.class))).thenAnswer(invocation -> {
+            UserRequestDTO request = invocation.getArgument(0);
+            return new User(request.getName(), request.getEmail(), request.getAge(), null);
+        });
+        when(userMapper.toResponseDTO(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            return new UserResponseDTO(user.getId(), user.getName(), user.getEmail(), user.getAge(),
+                    user.getCreatedAt());
+        });
+        when(userStore.insertAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId(ids.incrementAndGet()));
+            return users;
+        });
+    }
+
+    @Test
+    @DisplayName("insertAll - all users are inserted with a single insertAll call")
+    void insertsWholeBatch() {
+        List<UserWriteOutcome> outcomes = writer.insertAll(List.of(
+                new UserRequestDTO("Alice", "alice@example.com", 25),
+                new UserRequestDTO("Bob", "bob@example.com", 30)));
+
+        assertTrue(outcomes.get(0).isCreated());
+        assertEquals("Alice", outcomes.get(0).user().getName());
+        assertEquals("Bob", outcomes.get(1).user().getName());
+        verify(userStore, times(1)).insertAll(anyList());
+    }
+
+    @Test
+    @DisplayName("insertAll - existing and repeated names and emails are rejected")
+    void rejectsDuplicates() {
+        when(userStore.findExistingNames(anyCollection())).thenReturn(List.of("Alice"));
+        when(userStore.findExistingEmails(anyCollection())).thenReturn(List.of());
+
+        List<UserWriteOutcome> outcomes = writer.insertAll(List.of(
+                new UserRequestDTO("Alice", "alice@example.com", 25),
+                new UserRequestDTO("Bob", "bob@example.com", 30),
+                new UserRequestDTO("Carol", "bob@example.com", 41),
+                new UserRequestDTO("Carol", "carol@example.com", 42)));
+
+        assertFalse(outcomes.get(0).isCreated());
+        assertEquals(UserBatchWriter.NAME_TAKEN, outcomes.get(0).errors().get("name"));
+        assertTrue(outcomes.get(1).isCreated());
+        assertFalse(outcomes.get(2).isCreated());
+        assertEquals(UserBatchWriter.EMAIL_TAKEN, outcomes.get(2).errors().get("email"));
+        assertNull(outcomes.get(2).errors().get("name"));
+        //Отклонённый запрос не занимает имя
+        assertTrue(outcomes.get(3).isCreated());
+    }
+
+    @Test
+    @DisplayName("insertAll - a conflicting batch is retried row by row")
+    void retriesRowByRowOnConflict() {
+        when(userStore.insertAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(invocation -> {
+                    List<User> users = invocation.getArgument(0);
+                    users.forEach(user -> user.setId(ids.incrementAndGet()));
+                    return users;
+                })
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(userStore.findExistingEmails(List.of("bob@example.com"))).thenReturn(List.of("bob@example.com"));
+
+        List<UserWriteOutcome> outcomes = writer.insertAll(List.of(
+                new UserRequestDTO("Alice", "alice@example.com", 25),
+                new UserRequestDTO("Bob", "bob@example.com", 30)));
+
+        assertTrue(outcomes.get(0).isCreated());
+        assertFalse(outcomes.get(1).isCreated());
+        assertEquals(UserBatchWriter.EMAIL_TAKEN, outcomes.get(1).errors().get("email"));
+    }
+}
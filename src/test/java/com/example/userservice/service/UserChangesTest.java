@@ -0,0 +1,96 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserChangesDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserChangesTest {
+    private static ConfigurableApplicationContext context;
+    private static UserService userService;
+
+    @BeforeAll
+    static void startInstance() {
+        context = TestInstances.start(TestInstances.h2Url("user-service-changes"),
+                Map.of("users.changes.lag", "0s"));
+        userService = context.getBean(UserService.class);
+    }
+
+    @AfterAll
+    static void stopInstance() {
+        context.close();
+    }
+
+    @Test
+    @DisplayName("getChanges - only users changed after the watermark, deletions as ids")
+    void changesAfterWatermark() throws Exception {
+        UserResponseDTO alice = userService.createUser(new UserRequestDTO("Alice", "alice@example.com", 25));
+        UserResponseDTO bob = userService.createUser(new UserRequestDTO("Bob", "bob@example.com", 30));
+        Thread.sleep(5);
+        LocalDateTime since = LocalDateTime.now();
+        Thread.sleep(5);
+
+        assertTrue(userService.updateUser(alice.getId(), new UserRequestDTO("Alice", "alice@corp.com", 26)));
+        assertTrue(userService.deleteUser(bob.getId()));
+        UserResponseDTO carol = userService.createUser(new UserRequestDTO("Carol", "carol@example.com", 41));
+
+        UserChangesDTO changes = userService.getChanges(since, 0, 100);
+
+        assertEquals(List.of(alice.getId(), carol.getId()),
+                changes.getUpserts().stream().map(UserResponseDTO::getId).toList());
+        assertEquals("alice@corp.com", changes.getUpserts().get(0).getEmail());
+        assertEquals(List.of(bob.getId()), changes.getDeletedIds());
+        assertFalse(changes.isHasNext());
+        assertEquals(carol.getId(), changes.getNextAfter());
+        assertEquals(changes.getUpserts().get(1).getUpdatedAt(), changes.getNextSince());
+
+        UserChangesDTO next = userService.getChanges(changes.getNextSince(), changes.getNextAfter(), 100);
+        assertTrue(next.getUpserts().isEmpty());
+        assertTrue(next.getDeletedIds().isEmpty());
+    }
+
+    @Test
+    @DisplayName("getChanges - pages cover every change exactly once, including equal timestamps")
+    void pagesCoverEveryChange() throws Exception {
+        Thread.sleep(5);
+        LocalDateTime since = LocalDateTime.now();
+        //Пакет получает одно время создания на всех, страницы делятся внутри одинаковых updated_at по id
+        List<UserRequestDTO> requests = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            requests.add(new UserRequestDTO("Paged" + i, "paged" + i + "@example.com", 20 + i));
+        }
+        userService.createUsers(requests.iterator());
+        UserResponseDTO first = userService.getUserByName("Paged0").orElseThrow();
+        assertTrue(userService.deleteUser(first.getId()));
+
+        List<Long> upserted = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        UserChangesDTO page = userService.getChanges(since, 0, 3);
+        int pages = 1;
+        upserted.addAll(page.getUpserts().stream().map(UserResponseDTO::getId).toList());
+        deleted.addAll(page.getDeletedIds());
+        while (page.isHasNext()) {
+            page = userService.getChanges(page.getNextSince(), page.getNextAfter(), 3);
+            pages++;
+            upserted.addAll(page.getUpserts().stream().map(UserResponseDTO::getId).toList());
+            deleted.addAll(page.getDeletedIds());
+        }
+
+        assertEquals(3, pages);
+        assertEquals(6, upserted.size());
+        assertFalse(upserted.contains(first.getId()));
+        assertEquals(List.of(first.getId()), deleted);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.CacheConfig;
+import com.example.userservice.config.SharedCacheTier;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.util.InMemorySharedCacheTier;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Два экземпляра приложения в одной JVM над общей базой H2 и общим уровнем кэша InMemorySharedCacheTier
+public class UserDistributedCacheTest {
+    private static final Duration PROPAGATION_TIMEOUT = Duration.ofSeconds(10);
+
+    //Экземпляры получают общий уровень кэша через этот бин; каждый тест подставляет свой
+    private static volatile InMemorySharedCacheTier sharedTier;
+
+    @TestConfiguration
+    static class SharedTierConfig {
+        @Bean
+        SharedCacheTier sharedCacheTier() {
+            return sharedTier;
+        }
+    }
+
+    @Test
+    @DisplayName("near consistency - other instances drop stale entries after the change is broadcast")
+    void nearCacheIsInvalidatedAcrossInstances() {
+        sharedTier = new InMemorySharedCacheTier();
+        String url = TestInstances.h2Url("distributed-cache-near");
+        Map<String, Object> properties = Map.of("users.cache.invalidation.enabled", "true");
+        try (ConfigurableApplicationContext first = TestInstances.start(url, properties, SharedTierConfig.class);
+             ConfigurableApplicationContext second = TestInstances.start(url, properties, SharedTierConfig.class)) {
+            UserService writer = first.getBean(UserService.class);
+            UserService reader = second.getBean(UserService.class);
+
+            //Созданный пользователь сразу попадает в общий уровень, и второй экземпляр читает его оттуда
+            UserResponseDTO user = writer.createUser(new UserRequestDTO("Alice", "alice@example.com", 25));
+            assertTrue(sharedTier.contains(CacheConfig.USERS_CACHE, user.getId()));
+            long hits = sharedTier.getHits();
+            assertEquals("Alice", reader.getUserById(user.getId()).orElseThrow().getName());
+            assertEquals(hits + 1, sharedTier.getHits());
+
+            //Повторное чтение обслуживает ближний уровень второго экземпляра
+            reader.getUserById(user.getId());
+            assertEquals(hits + 1, sharedTier.getHits());
+
+            assertTrue(writer.updateUser(user.getId(), new UserRequestDTO("Alicia", "alice@example.com", 26)));
+            assertFalse(sharedTier.contains(CacheConfig.USERS_CACHE, user.getId()));
+            awaitEquals("Alicia", () -> reader.getUserById(user.getId()).map(UserResponseDTO::getName).orElse(null));
+
+            assertTrue(writer.deleteUser(user.getId()));
+            awaitEquals(Optional.empty(), () -> reader.getUserById(user.getId()));
+        }
+    }
+
+    @Test
+    @DisplayName("shared consistency - reads skip the near cache and see committed changes at once")
+    void sharedConsistencyReadsThroughSharedTier() {
+        sharedTier = new InMemorySharedCacheTier();
+        String url = TestInstances.h2Url("distributed-cache-shared");
+        Map<String, Object> properties = Map.of("users.cache.consistency", "shared");
+        try (ConfigurableApplicationContext first = TestInstances.start(url, properties, SharedTierConfig.class);
+             ConfigurableApplicationContext second = TestInstances.start(url, properties, SharedTierConfig.class)) {
+            UserService writer = first.getBean(UserService.class);
+            UserService reader = second.getBean(UserService.class);
+
+            UserResponseDTO user = writer.createUser(new UserRequestDTO("Bob", "bob@example.com", 30));
+            assertEquals("Bob", reader.getUserById(user.getId()).orElseThrow().getName());
+
+            assertTrue(writer.updateUser(user.getId(), new UserRequestDTO("Robert", "bob@example.com", 31)));
+            assertEquals("Robert", reader.getUserById(user.getId()).orElseThrow().getName());
+
+            assertTrue(writer.deleteUser(user.getId()));
+            assertTrue(reader.getUserById(user.getId()).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("shared consistency - startup fails without a shared cache tier")
+    void sharedConsistencyRequiresSharedTier() {
+        Map<String, Object> properties = Map.of("users.cache.consistency", "shared");
+        BeanCreationException e = assertThrows(BeanCreationException.class,
+                () -> TestInstances.start(TestInstances.h2Url("distributed-cache-missing"), properties).close());
+        assertTrue(e.getMostSpecificCause().getMessage().contains("SharedCacheTier"));
+    }
+
+    private static <T> void awaitEquals(T expected, Supplier<T> actual) {
+        long deadline = System.nanoTime() + PROPAGATION_TIMEOUT.toNanos();
+        while (!expected.equals(actual.get())) {
+            assertTrue(System.nanoTime() < deadline, "Change was not propagated within " + PROPAGATION_TIMEOUT);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserEventDTO;
+import com.example.userservice.dto.UserEventPageDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserEventServiceTest {
+    private static ConfigurableApplicationContext context;
+    private static UserService userService;
+    private static UserEventService userEventService;
+
+    @BeforeAll
+    static void startInstance() {
+        context = TestInstances.start(TestInstances.h2Url("user-service-events"),
+                Map.of("users.events.gap-timeout", "1s"));
+        userService = context.getBean(UserService.class);
+        userEventService = context.getBean(UserEventService.class);
+    }
+
+    @AfterAll
+    static void stopInstance() {
+        context.close();
+    }
+
+    private static long lastOffset() {
+        return userEventService.getEvents(0, 1000, Duration.ZERO).getNextOffset();
+    }
+
+    @Test
+    @DisplayName("getEvents - create, update and delete are recorded in order")
+    void mutationsAreRecorded() {
+        long after = lastOffset();
+        UserResponseDTO created = userService.createUser(new UserRequestDTO("Alice", "alice@example.com", 25));
+        assertTrue(userService.updateUser(created.getId(), new UserRequestDTO("Alice", "alice@corp.com", 26)));
+        assertTrue(userService.updateUser(created.getId(),
+                new UserRequestDTO("Alice", "alice@corp.com", 27, created.getVersion() + 1)));
+        assertTrue(userService.deleteUser(created.getId()));
+        userService.createUsers(List.of(new UserRequestDTO("Bob", "bob@example.com", 30)).iterator());
+
+        UserEventPageDTO page = userEventService.getEvents(after, 100, Duration.ZERO);
+
+        List<UserEventDTO> events = page.getItems();
+        assertEquals(List.of(UserEventDTO.Type.CREATED, UserEventDTO.Type.UPDATED, UserEventDTO.Type.UPDATED,
+                UserEventDTO.Type.DELETED, UserEventDTO.Type.CREATED),
+                events.stream().map(UserEventDTO::getType).toList());
+        assertEquals(created.getId(), events.get(1).getUserId());
+        assertEquals("alice@corp.com", events.get(1).getEmail());
+        assertEquals(created.getVersion() + 1, events.get(1).getVersion());
+        assertEquals(created.getVersion() + 2, events.get(2).getVersion());
+        assertEquals(27, events.get(2).getAge());
+        assertNull(events.get(3).getEmail());
+        assertEquals("Bob", events.get(4).getName());
+        assertEquals(events.get(4).getId(), page.getNextOffset());
+    }
+
+    @Test
+    @DisplayName("getEvents - waiting request returns as soon as a user is created")
+    void longPollWakesUpOnWrite() throws Exception {
+        long after = lastOffset();
+        CompletableFuture<UserEventPageDTO> poll = CompletableFuture.supplyAsync(
+                () -> userEventService.getEvents(after, 100, Duration.ofSeconds(20)));
+        Thread.sleep(200);
+        assertFalse(poll.isDone());
+
+        userService.createUser(new UserRequestDTO("Carol", "carol@example.com", 41));
+
+        UserEventPageDTO page = poll.get(5, TimeUnit.SECONDS);
+        assertEquals(1, page.getItems().size());
+        assertEquals("Carol", page.getItems().get(0).getName());
+    }
+
+    @Test
+    @DisplayName("getEvents - empty page keeps the offset when nothing happens")
+    void emptyPageKeepsOffset() {
+        long after = lastOffset();
+
+        UserEventPageDTO page = userEventService.getEvents(after, 100, Duration.ofMillis(100));
+
+        assertTrue(page.getItems().isEmpty());
+        assertEquals(after, page.getNextOffset());
+    }
+
+    @Test
+    @DisplayName("getEvents - gap holds back later events until it has been seen for gap-timeout")
+    void gapHoldsBackLaterEvents() throws Exception {
+        //Событие 1000001 зафиксировано, а 1000000 ещё нет: пока пропуск свежий, отдавать 1000001 нельзя.
+        //Событие старое, как у отставшего клиента, но пропуск замечен только сейчас
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into user_events (id, type, user_id, occurred_at) values (?, ?, ?, ?)",
+                1_000_001L, "DELETED", 1L, LocalDateTime.now().minusMinutes(1));
+        try {
+            assertTrue(userEventService.getEvents(999_999L, 100, Duration.ZERO).getItems().isEmpty());
+
+            Thread.sleep(1100);
+            UserEventPageDTO page = userEventService.getEvents(999_999L, 100, Duration.ZERO);
+            assertEquals(1, page.getItems().size());
+            assertEquals(1_000_001L, page.getNextOffset());
+        } finally {
+            //Иначе остальные тесты начинали бы чтение журнала после этого события
+            jdbcTemplate.update("delete from user_events where id = ?", 1_000_001L);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.model.User;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UserIdAllocationTest {
+    private static final int USERS_PER_INSTANCE = 200;
+
+    @Test
+    @DisplayName("Two service instances over one database allocate disjoint id ranges")
+    void instancesAllocateDisjointIdRanges() throws Exception {
+        String url = TestInstances.h2Url("id-allocation");
+        try (ConfigurableApplicationContext first = TestInstances.start(url, Map.of());
+             ConfigurableApplicationContext second = TestInstances.start(url,
+                     Map.of("spring.jpa.hibernate.ddl-auto", "none"))) {
+            List<UserService> instances = List.of(first.getBean(UserService.class), second.getBean(UserService.class));
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<Long>> ids = new ArrayList<>();
+            for (int i = 0; i < 2 * USERS_PER_INSTANCE; i++) {
+                UserService instance = instances.get(i % 2);
+                UserRequestDTO request = new UserRequestDTO("user" + i, "user" + i + "@example.com", 30);
+                ids.add(executor.submit(() -> instance.createUser(request).getId()));
+            }
+            executor.shutdown();
+
+            Map<Long, Integer> blockOwners = new HashMap<>();
+            Set<Long> unique = new HashSet<>();
+            for (int i = 0; i < ids.size(); i++) {
+                long id = ids.get(i).get();
+                assertTrue(unique.add(id), "id " + id + " was allocated twice");
+                //Каждый блок (value - ID_ALLOCATION_SIZE, value] целиком принадлежит одному экземпляру. Значения
+                //последовательности - 1, 51, 101..., поэтому блоки - {1}, 2..51, 52..101 и т.д.
+                Integer owner = blockOwners.putIfAbsent(Math.floorDiv(id - 2, User.ID_ALLOCATION_SIZE), i % 2);
+                assertTrue(owner == null || owner == i % 2, "block of id " + id + " is shared by instances");
+            }
+            assertEquals(2 * USERS_PER_INSTANCE, unique.size());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserSearchFilter;
+import com.example.userservice.dto.UserSearchPageDTO;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserSearchTest {
+    private static ConfigurableApplicationContext context;
+    private static UserService userService;
+    private static LocalDateTime beforeCreation;
+
+    @BeforeAll
+    static void startInstance() {
+        context = TestInstances.start(TestInstances.h2Url("user-search"), Map.of());
+        userService = context.getBean(UserService.class);
+        beforeCreation = LocalDateTime.now().minusSeconds(1);
+        userService.createUser(new UserRequestDTO("Alice", "alice@corp.com", 31));
+        userService.createUser(new UserRequestDTO("Alan", "alan@Corp.com", 45));
+        userService.createUser(new UserRequestDTO("Al_x", "alx@example.com", 35));
+        userService.createUser(new UserRequestDTO("Bob", "bob@corp.com", 38));
+        userService.createUser(new UserRequestDTO("Carol", "carol@example.com", 22));
+    }
+
+    @AfterAll
+    static void stopInstance() {
+        context.close();
+    }
+
+    @Test
+    @DisplayName("searchUsers - name prefix treats LIKE wildcards literally")
+    void namePrefix() {
+        assertEquals(List.of("Al_x", "Alan", "Alice"), names(search(filter -> filter.setNamePrefix("Al")), false));
+        assertEquals(List.of("Al_x"), names(search(filter -> filter.setNamePrefix("Al_")), false));
+    }
+
+    @Test
+    @DisplayName("searchUsers - email domain is case-insensitive and combines with age range")
+    void emailDomainAndAgeRange() {
+        UserSearchPageDTO page = search(filter -> {
+            filter.setEmailDomain("CORP.com");
+            filter.setMinAge(30);
+            filter.setMaxAge(40);
+        });
+
+        assertEquals(List.of("Alice", "Bob"), names(page, true));
+    }
+
+    @Test
+    @DisplayName("searchUsers - exact email and createdAt range")
+    void exactEmailAndCreatedRange() {
+        assertEquals(List.of("Carol"), names(search(filter -> filter.setEmail("carol@example.com")), false));
+        assertTrue(search(filter -> filter.setCreatedTo(beforeCreation)).getItems().isEmpty());
+        assertEquals(5, search(filter -> filter.setCreatedFrom(beforeCreation)).getItems().size());
+    }
+
+    @Test
+    @DisplayName("searchUsers - sorted pages do not overlap")
+    void sortedPages() {
+        List<String> names = new ArrayList<>();
+        int page = 0;
+        UserSearchPageDTO result;
+        do {
+            result = userService.searchUsers(new UserSearchFilter(), "age,desc", page++, 2);
+            result.getItems().forEach(user -> names.add(user.getName()));
+        } while (result.isHasNext());
+
+        assertEquals(List.of("Alan", "Bob", "Al_x", "Alice", "Carol"), names);
+        assertEquals(3, page);
+    }
+
+    @Test
+    @DisplayName("getUserByEmail / getUserByName - lookups by unique keys")
+    void lookupByUniqueKeys() {
+        assertEquals("Alan", userService.getUserByEmail("ALAN@corp.com").orElseThrow().getName());
+        assertEquals("alice@corp.com", userService.getUserByName("Alice").orElseThrow().getEmail());
+        assertTrue(userService.getUserByName("alice").isEmpty());
+    }
+
+    private static UserSearchPageDTO search(Consumer<UserSearchFilter> conditions) {
+        UserSearchFilter filter = new UserSearchFilter();
+        conditions.accept(filter);
+        return userService.searchUsers(filter, "name", 0, 100);
+    }
+
+    private static List<String> names(UserSearchPageDTO page, boolean sorted) {
+        List<String> names = page.getItems().stream().map(UserResponseDTO::getName).toList();
+        return sorted ? names.stream().sorted().toList() : names;
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.CacheConfig;
+import com.example.userservice.config.MetricsConfig;
+import com.example.userservice.dto.UserBatchDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.exception.UserEmailAmbiguousException;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.model.User;
+import com.example.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(classes = {CacheConfig.class, UserService.class, SimpleMeterRegistry.class})
+public class UserServiceCacheTest {
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private UserMapper userMapper;
+
+    @MockBean
+    private UserBatchWriter userBatchWriter;
+
+    @MockBean
+    private UserEventService userEventService;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private Validator validator;
+
+    private final User alice = new User("Alice", "alice@example.com", 25, LocalDateTime.now());
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.USERS_CACHE).clear();
+        cacheManager.getCache(CacheConfig.USER_IDS_BY_EMAIL_CACHE).clear();
+        cacheManager.getCache(CacheConfig.USER_IDS_BY_NAME_CACHE).clear();
+        alice.setId(1L);
+        when(userMapper.toResponseDTO(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            return new UserResponseDTO(user.getId(), user.getName(), user.getEmail(), user.getAge(),
+                    user.getCreatedAt());
+        });
+    }
+
+    private UserResponseDTO aliceDTO() {
+        return new UserResponseDTO(alice.getId(), alice.getName(), alice.getEmail(), alice.getAge(),
+                alice.getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("getUserById - repeated reads are served from the cache")
+    void repeatedReadsHitCache() {
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.of(aliceDTO()));
+
+        userService.getUserById(1L);
+        Optional<UserResponseDTO> cached = userService.getUserById(1L);
+
+        assertTrue(cached.isPresent());
+        assertEquals("Alice", cached.get().getName());
+        verify(userRepository, times(1)).findResponseById(1L);
+    }
+
+    @Test
+    @DisplayName("getUsersByIds - cached users are not queried, order of ids is kept")
+    void batchGetUsesCache() {
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.of(aliceDTO()));
+        UserResponseDTO bob = new UserResponseDTO(2L, "Bob", "bob@example.com", 30, LocalDateTime.now());
+        when(userRepository.findResponsesByIds(List.of(2L, 99L))).thenReturn(List.of(bob));
+        userService.getUserById(1L);
+
+        UserBatchDTO batch = userService.getUsersByIds(List.of(2L, 1L, 99L, 2L));
+
+        assertEquals(List.of(2L, 1L), batch.getItems().stream().map(UserResponseDTO::getId).toList());
+        assertEquals(List.of(99L), batch.getMissingIds());
+        verify(userRepository, times(1)).findResponsesByIds(List.of(2L, 99L));
+
+        //Загруженный пакетом пользователь попал в кэш
+        userService.getUserById(2L);
+        verify(userRepository, never()).findResponseById(2L);
+    }
+
+    @Test
+    @DisplayName("getUsersByIds - large id lists are split into chunked IN queries")
+    void batchGetIsChunked() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= UserService.BATCH_GET_CHUNK_SIZE + 10; id++) {
+            ids.add(id);
+        }
+        when(userRepository.findResponsesByIds(anyList())).thenReturn(List.of());
+
+        UserBatchDTO batch = userService.getUsersByIds(ids);
+
+        assertEquals(ids, batch.getMissingIds());
+        verify(userRepository, times(1)).findResponsesByIds(ids.subList(0, UserService.BATCH_GET_CHUNK_SIZE));
+        verify(userRepository, times(1)).findResponsesByIds(ids.subList(UserService.BATCH_GET_CHUNK_SIZE,
+                ids.size()));
+    }
+
+    @Test
+    @DisplayName("getUserById - missing users are not cached")
+    void missingUserIsNotCached() {
+        when(userRepository.findResponseById(99L)).thenReturn(Optional.empty());
+
+        userService.getUserById(99L);
+        userService.getUserById(99L);
+
+        verify(userRepository, times(2)).findResponseById(99L);
+    }
+
+    @Test
+    @DisplayName("getUserById - concurrent misses for one id share a single query")
+    void concurrentMissesAreCoalesced() throws Exception {
+        int readers = 8;
+        Counter coalesced = meterRegistry.counter(MetricsConfig.COALESCED_COUNTER, "operation", "get");
+        double coalescedBefore = coalesced.count();
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findResponseById(1L)).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return Optional.of(aliceDTO());
+        });
+
+        List<Future<Optional<UserResponseDTO>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(readers)) {
+            for (int i = 0; i < readers; i++) {
+                results.add(executor.submit(() -> userService.getUserById(1L)));
+            }
+            //Загрузка отпускается, когда все остальные читатели уже ждут её результата
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (coalesced.count() - coalescedBefore < readers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            for (Future<Optional<UserResponseDTO>> result : results) {
+                assertEquals("Alice", result.get().orElseThrow().getName());
+            }
+        }
+
+        verify(userRepository, times(1)).findResponseById(1L);
+        assertEquals(readers - 1, coalesced.count() - coalescedBefore);
+    }
+
+    @Test
+    @DisplayName("updateUser - cached entry is evicted")
+    void updateEvictsCache() {
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.of(aliceDTO()));
+        when(userRepository.updateUser(eq(1L), eq("Alice"), eq("alice123@example.com"), eq("example.com"), eq(26),
+                any(LocalDateTime.class))).thenReturn(1);
+
+        userService.getUserById(1L);
+        userService.updateUser(1L, new UserRequestDTO("Alice", "alice123@example.com", 26));
+        userService.getUserById(1L);
+
+        verify(userRepository, times(2)).findResponseById(1L);
+    }
+
+    @Test
+    @DisplayName("deleteUser - cached entry is evicted")
+    void deleteEvictsCache() {
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.of(aliceDTO()));
+        when(userRepository.deleteUser(eq(1L), any())).thenReturn(1);
+
+        userService.getUserById(1L);
+        userService.deleteUser(1L);
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.empty());
+
+        assertTrue(userService.getUserById(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("getUserByEmail - exact match is cached, a match in another letter case is not")
+    void emailLookupIsNormalized() {
+        UserResponseDTO aliceDTO = new UserResponseDTO(1L, "Alice", "alice@example.com", 25, alice.getCreatedAt());
+        when(userRepository.findByNormalizedEmail("alice@example.com")).thenReturn(List.of(aliceDTO));
+
+        userService.getUserByEmail("alice@example.com");
+        Optional<UserResponseDTO> cached = userService.getUserByEmail("  alice@example.com ");
+        assertEquals(Optional.of(1L), cached.map(UserResponseDTO::getId));
+        verify(userRepository, times(1)).findByNormalizedEmail("alice@example.com");
+        verify(userRepository, never()).findResponseById(any());
+
+        assertEquals(Optional.of(1L), userService.getUserByEmail("Alice@Example.COM").map(UserResponseDTO::getId));
+        assertEquals(Optional.of(1L), userService.getUserByEmail("Alice@Example.COM").map(UserResponseDTO::getId));
+        verify(userRepository, times(3)).findByNormalizedEmail("alice@example.com");
+    }
+
+    @Test
+    @DisplayName("getUserByEmail - emails that differ only in case resolve to their own users")
+    void emailsDifferingInCase() {
+        UserResponseDTO lower = new UserResponseDTO(1L, "Alice", "alice@x.com", 25, alice.getCreatedAt());
+        UserResponseDTO upper = new UserResponseDTO(2L, "Alice2", "Alice@x.com", 30, alice.getCreatedAt());
+        when(userRepository.findByNormalizedEmail("alice@x.com")).thenReturn(List.of(lower, upper));
+
+        assertEquals(Optional.of(2L), userService.getUserByEmail("Alice@x.com").map(UserResponseDTO::getId));
+        assertEquals(Optional.of(1L), userService.getUserByEmail("alice@x.com").map(UserResponseDTO::getId));
+        //Повторные запросы берутся из кэша и по-прежнему различают пользователей
+        assertEquals(Optional.of(2L), userService.getUserByEmail("Alice@x.com").map(UserResponseDTO::getId));
+        assertEquals(Optional.of(1L), userService.getUserByEmail("alice@x.com").map(UserResponseDTO::getId));
+        verify(userRepository, times(2)).findByNormalizedEmail("alice@x.com");
+
+        assertThrows(UserEmailAmbiguousException.class, () -> userService.getUserByEmail("ALICE@x.com"));
+    }
+
+    @Test
+    @DisplayName("getUserByEmail - entry is not reused after the user changed email")
+    void emailLookupAfterUpdate() {
+        UserResponseDTO aliceDTO = new UserResponseDTO(1L, "Alice", "alice@example.com", 25, alice.getCreatedAt());
+        when(userRepository.findByNormalizedEmail("alice@example.com")).thenReturn(List.of(aliceDTO));
+        userService.getUserByEmail("alice@example.com");
+
+        alice.setEmail("alice@corp.com");
+        when(userRepository.updateUser(eq(1L), eq("Alice"), eq("alice@corp.com"), eq("corp.com"), eq(25),
+                any(LocalDateTime.class))).thenReturn(1);
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.of(aliceDTO()));
+        when(userRepository.findByNormalizedEmail("alice@example.com")).thenReturn(List.of());
+        userService.updateUser(1L, new UserRequestDTO("Alice", "alice@corp.com", 25));
+
+        assertTrue(userService.getUserByEmail("alice@example.com").isEmpty());
+        verify(userRepository, times(2)).findByNormalizedEmail("alice@example.com");
+    }
+
+    @Test
+    @DisplayName("getUserByName - entry is not reused after the user is deleted")
+    void nameLookupAfterDelete() {
+        UserResponseDTO aliceDTO = new UserResponseDTO(1L, "Alice", "alice@example.com", 25, alice.getCreatedAt());
+        when(userRepository.findByName("Alice")).thenReturn(Optional.of(aliceDTO));
+        userService.getUserByName("Alice");
+
+        when(userRepository.deleteUser(eq(1L), any())).thenReturn(1);
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.empty());
+        userService.deleteUser(1L);
+        when(userRepository.findByName("Alice")).thenReturn(Optional.empty());
+
+        assertTrue(userService.getUserByName("Alice").isEmpty());
+        verify(userRepository, times(2)).findByName("Alice");
+    }
+}
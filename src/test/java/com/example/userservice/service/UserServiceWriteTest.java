@@ -0,0 +1,129 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserListVersionDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserVersionDTO;
+import com.example.userservice.exception.UserAlreadyExistsException;
+import com.example.userservice.exception.UserVersionConflictException;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserServiceWriteTest {
+    private static ConfigurableApplicationContext context;
+    private static UserService userService;
+
+    @BeforeAll
+    static void startInstance() {
+        context = TestInstances.start(TestInstances.h2Url("user-service-write"), Map.of());
+        userService = context.getBean(UserService.class);
+    }
+
+    @AfterAll
+    static void stopInstance() {
+        context.close();
+    }
+
+    @Test
+    @DisplayName("createUser - taken name and email are reported per field, as with write-behind")
+    void createDuplicate() {
+        userService.createUser(new UserRequestDTO("Frank", "frank@example.com", 33));
+
+        UserAlreadyExistsException e = assertThrows(UserAlreadyExistsException.class,
+                () -> userService.createUser(new UserRequestDTO("Frank", "frank@example.com", 34)));
+        assertEquals(Map.of("name", UserBatchWriter.NAME_TAKEN, "email", UserBatchWriter.EMAIL_TAKEN),
+                e.getErrors());
+    }
+
+    @Test
+    @DisplayName("updateUser - update without version bumps the version")
+    void updateWithoutVersion() {
+        UserResponseDTO created = userService.createUser(new UserRequestDTO("Alice", "alice@example.com", 25));
+
+        assertTrue(userService.updateUser(created.getId(), new UserRequestDTO("Alice", "alice@corp.com", 26)));
+
+        UserResponseDTO updated = userService.getUserById(created.getId()).orElseThrow();
+        assertEquals("alice@corp.com", updated.getEmail());
+        assertEquals(26, updated.getAge());
+        assertEquals(created.getVersion() + 1, updated.getVersion());
+    }
+
+    @Test
+    @DisplayName("updateUser - stale version is rejected")
+    void updateWithStaleVersion() {
+        UserResponseDTO created = userService.createUser(new UserRequestDTO("Bob", "bob@example.com", 30));
+        long version = created.getVersion();
+
+        assertTrue(userService.updateUser(created.getId(), new UserRequestDTO("Bob", "bob@example.com", 31, version)));
+        assertThrows(UserVersionConflictException.class, () -> userService.updateUser(created.getId(),
+                new UserRequestDTO("Bob", "bob@example.com", 32, version)));
+        assertEquals(31, userService.getUserById(created.getId()).orElseThrow().getAge());
+    }
+
+    @Test
+    @DisplayName("updateUser - missing user is reported as not updated")
+    void updateMissingUser() {
+        assertFalse(userService.updateUser(-1L, new UserRequestDTO("Nobody", "nobody@example.com", 30)));
+        assertFalse(userService.updateUser(-1L, new UserRequestDTO("Nobody", "nobody@example.com", 30, 0L)));
+    }
+
+    @Test
+    @DisplayName("deleteUser - user is deleted once")
+    void deleteUser() {
+        UserResponseDTO created = userService.createUser(new UserRequestDTO("Carol", "carol@example.com", 41));
+
+        assertTrue(userService.deleteUser(created.getId()));
+        assertFalse(userService.deleteUser(created.getId()));
+        assertTrue(userService.getUserById(created.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("getAllUsersVersion - deleting one user and creating another with a lower id changes the version")
+    void listVersionSeesReplacedUser() {
+        UserResponseDTO first = userService.createUser(new UserRequestDTO("Gina", "gina@example.com", 20));
+        UserResponseDTO second = userService.createUser(new UserRequestDTO("Hank", "hank@example.com", 21));
+        userService.createUser(new UserRequestDTO("Ivan", "ivan@example.com", 22));
+        assertTrue(userService.deleteUser(second.getId()));
+        UserListVersionDTO before = userService.getAllUsersVersion();
+
+        //Другой экземпляр мог получить диапазон id раньше: пользователь с id между first и third,
+        //создание после удаления первого сохраняет count, maxId и сумму версий
+        assertTrue(userService.deleteUser(first.getId()));
+        context.getBean(JdbcTemplate.class).update("insert into users (id, name, email, email_domain, age, " +
+                        "created_at, updated_at, version) values (?, 'Jill', 'jill@example.com', 'example.com', 23, " +
+                        "current_timestamp, current_timestamp, 0)", second.getId());
+
+        UserListVersionDTO after = userService.getAllUsersVersion();
+        assertEquals(before.count(), after.count());
+        assertEquals(before.maxId(), after.maxId());
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    @DisplayName("getUserVersion / getAllUsersVersion - change after update and delete")
+    void versionsFollowWrites() {
+        UserResponseDTO created = userService.createUser(new UserRequestDTO("Erin", "erin@example.com", 28));
+        assertEquals(created.getCreatedAt(), created.getUpdatedAt());
+        UserListVersionDTO listBefore = userService.getAllUsersVersion();
+
+        assertTrue(userService.updateUser(created.getId(), new UserRequestDTO("Erin", "erin@example.com", 29)));
+        UserVersionDTO version = userService.getUserVersion(created.getId()).orElseThrow();
+        assertEquals(created.getVersion() + 1, version.version());
+        assertFalse(version.updatedAt().isBefore(created.getUpdatedAt()));
+        UserListVersionDTO listAfterUpdate = userService.getAllUsersVersion();
+        assertNotEquals(listBefore, listAfterUpdate);
+
+        assertTrue(userService.deleteUser(created.getId()));
+        assertTrue(userService.getUserVersion(created.getId()).isEmpty());
+        assertNotEquals(listAfterUpdate, userService.getAllUsersVersion());
+    }
+}
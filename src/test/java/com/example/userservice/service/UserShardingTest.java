@@ -0,0 +1,270 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.BulkCreateResultDTO;
+import com.example.userservice.dto.BulkItemResultDTO;
+import com.example.userservice.dto.UserBatchDTO;
+import com.example.userservice.dto.UserChangesDTO;
+import com.example.userservice.dto.UserEventDTO;
+import com.example.userservice.dto.UserEventPageDTO;
+import com.example.userservice.dto.UserPageDTO;
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.dto.UserSearchFilter;
+import com.example.userservice.exception.UserAlreadyExistsException;
+import com.example.userservice.repository.ShardedUserRepository;
+import com.example.userservice.util.TestInstances;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Шарды - независимые базы H2; spring.datasource указывает на первый из них
+public class UserShardingTest {
+    private static final int USERS = 30;
+
+    @Test
+    @DisplayName("UserService - users are spread across shards and listed in id order")
+    void usersAreSharded() {
+        List<String> shards = shardUrls("sharding", 2);
+        try (ConfigurableApplicationContext context = start(shards, Map.of())) {
+            UserService userService = context.getBean(UserService.class);
+            List<Long> ids = createUsers(userService);
+
+            for (int shard = 0; shard < shards.size(); shard++) {
+                List<Long> stored = jdbc(shards.get(shard)).queryForList("select id from users", Long.class);
+                assertFalse(stored.isEmpty());
+                for (long id : stored) {
+                    assertEquals(shard, ShardedUserRepository.shardOf(id, shards.size()));
+                }
+            }
+            assertEquals(ids, userService.getAllUsers().stream().map(UserResponseDTO::getId).toList());
+            assertEquals(USERS, userService.getAllUsersVersion().count());
+            List<Long> requested = List.of(ids.get(9), ids.get(0), -1L, ids.get(4));
+            UserBatchDTO batch = userService.getUsersByIds(requested);
+            assertEquals(List.of(ids.get(9), ids.get(0), ids.get(4)),
+                    batch.getItems().stream().map(UserResponseDTO::getId).toList());
+            assertEquals(List.of(-1L), batch.getMissingIds());
+
+            List<Long> paged = new ArrayList<>();
+            Long after = null;
+            do {
+                UserPageDTO page = userService.getUsersPage(7, after);
+                page.getItems().forEach(user -> paged.add(user.getId()));
+                after = page.getNextCursor();
+            } while (after != null);
+            assertEquals(ids, paged);
+
+            UserSearchFilter filter = new UserSearchFilter();
+            filter.setMinAge(20);
+            filter.setMaxAge(24);
+            assertEquals(List.of("user4", "user3", "user2", "user1", "user0"),
+                    userService.searchUsers(filter, "age,desc", 0, 10).getItems().stream()
+                            .map(UserResponseDTO::getName).toList());
+            assertEquals(List.of("user12", "user13"), userService.searchUsers(new UserSearchFilter(), "name", 2, 2)
+                    .getItems().stream().map(UserResponseDTO::getName).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("UserService - lookups, updates, deletes and uniqueness work across shards")
+    void singleUserOperations() {
+        List<String> shards = shardUrls("sharding-single", 3);
+        try (ConfigurableApplicationContext context = start(shards, Map.of("users.changes.lag", "0s"))) {
+            UserService userService = context.getBean(UserService.class);
+            createUsers(userService);
+            UserResponseDTO user = userService.getUserByEmail("USER7@example.com").orElseThrow();
+
+            assertEquals("user7", userService.getUserByName("user7").orElseThrow().getName());
+            assertTrue(userService.updateUser(user.getId(), new UserRequestDTO("user7", "user7@corp.com", 50)));
+            assertEquals(50, userService.getUserById(user.getId()).orElseThrow().getAge());
+            assertEquals(user.getVersion() + 1, userService.getUserVersion(user.getId()).orElseThrow().version());
+            //Имя и email пользователя из другого шарда тоже заняты при изменении, с версией и без
+            UserResponseDTO other = userService.getAllUsers().stream()
+                    .filter(candidate -> ShardedUserRepository.shardOf(candidate.getId(), 3)
+                            != ShardedUserRepository.shardOf(user.getId(), 3))
+                    .findFirst().orElseThrow();
+            assertThrows(DataIntegrityViolationException.class, () -> userService.updateUser(user.getId(),
+                    new UserRequestDTO(other.getName(), "user7@corp.com", 50)));
+            assertThrows(DataIntegrityViolationException.class, () -> userService.updateUser(user.getId(),
+                    new UserRequestDTO("user7", other.getEmail(), 50, user.getVersion() + 1)));
+
+            //Занятые имя и email отклоняются, даже если новый пользователь попал бы в другой шард
+            assertThrows(UserAlreadyExistsException.class,
+                    () -> userService.createUser(new UserRequestDTO("user8", "new@example.com", 30)));
+            BulkCreateResultDTO bulk = userService.createUsers(List.of(
+                    new UserRequestDTO("fresh", "fresh@example.com", 30),
+                    new UserRequestDTO("other", "user9@example.com", 30)).iterator());
+            assertEquals(List.of(BulkItemResultDTO.Status.CREATED, BulkItemResultDTO.Status.FAILED),
+                    bulk.getItems().stream().map(BulkItemResultDTO::getStatus).toList());
+
+            assertTrue(userService.deleteUser(user.getId()));
+            assertTrue(userService.getUserById(user.getId()).isEmpty());
+            //Надгробие лежит в шарде пользователя, а изменения собираются со всех шардов
+            assertEquals(List.of(user.getId()), jdbc(shards.get(ShardedUserRepository.shardOf(user.getId(), 3)))
+                    .queryForList("select user_id from user_tombstones", Long.class));
+            UserChangesDTO changes = userService.getChanges(LocalDateTime.of(1970, 1, 1, 0, 0), 0, 1000);
+            assertEquals(List.of(user.getId()), changes.getDeletedIds());
+            assertEquals(USERS, changes.getUpserts().size());
+            assertEquals("fresh", changes.getUpserts().get(USERS - 1).getName());
+        }
+    }
+
+    @Test
+    @DisplayName("UserService - concurrent creates of one name on different shards let exactly one through")
+    void concurrentCreatesReserveKeys() throws Exception {
+        List<String> shards = shardUrls("sharding-keys", 3);
+        try (ConfigurableApplicationContext context = start(shards, Map.of());
+             ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            UserService userService = context.getBean(UserService.class);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> creates = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String email = "same" + i + "@example.com";
+                creates.add(executor.submit(() -> {
+                    start.await();
+                    return userService.createUser(new UserRequestDTO("same", email, 30)).getId();
+                }));
+            }
+            start.countDown();
+            //id идут подряд, поэтому пользователи попали бы в разные шарды
+            int created = 0;
+            for (Future<Long> create : creates) {
+                try {
+                    create.get();
+                    created++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(UserAlreadyExistsException.class, e.getCause());
+                }
+            }
+            assertEquals(1, created);
+            assertEquals(1, userService.searchUsers(new UserSearchFilter(), "id", 0, 10).getItems().size());
+            assertEquals(List.of("same"), jdbc(shards.get(0)).queryForList("select name from user_keys", String.class));
+        }
+    }
+
+    @Test
+    @DisplayName("ShardedUserRepository - users written before user_keys reserve their keys on startup")
+    void existingUsersReserveKeys() {
+        List<String> shards = shardUrls("sharding-existing-keys", 2);
+        try (ConfigurableApplicationContext context = start(shards, Map.of())) {
+            createUsers(context.getBean(UserService.class));
+        }
+        jdbc(shards.get(0)).update("delete from user_keys");
+
+        try (ConfigurableApplicationContext context = start(shards, Map.of())) {
+            assertEquals(USERS, jdbc(shards.get(0)).queryForObject("select count(*) from user_keys", Long.class));
+            assertThrows(UserAlreadyExistsException.class, () -> context.getBean(UserService.class)
+                    .createUser(new UserRequestDTO("user3", "new@example.com", 30)));
+        }
+    }
+
+    @Test
+    @DisplayName("UserService - events are written on the user's shard and relayed into one journal")
+    void eventsGoThroughShardOutboxes() {
+        List<String> shards = shardUrls("sharding-events", 3);
+        try (ConfigurableApplicationContext context = start(shards, Map.of())) {
+            UserService userService = context.getBean(UserService.class);
+            List<Long> ids = createUsers(userService);
+            assertTrue(userService.updateUser(ids.get(3), new UserRequestDTO("user3", "user3@corp.com", 40)));
+            assertTrue(userService.deleteUser(ids.get(5)));
+
+            UserEventService userEventService = context.getBean(UserEventService.class);
+            List<UserEventDTO> events = new ArrayList<>();
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (events.size() < USERS + 2 && System.nanoTime() < deadline) {
+                UserEventPageDTO page = userEventService.getEvents(
+                        events.isEmpty() ? 0 : events.get(events.size() - 1).getId(), 1000, Duration.ofSeconds(1));
+                events.addAll(page.getItems());
+            }
+
+            assertEquals(USERS + 2, events.size());
+            assertEquals(USERS, events.stream().filter(event -> event.getType() == UserEventDTO.Type.CREATED).count());
+            UserEventDTO updated = events.stream()
+                    .filter(event -> event.getType() == UserEventDTO.Type.UPDATED).findFirst().orElseThrow();
+            assertEquals(List.of(ids.get(3), "user3@corp.com", 1L),
+                    List.of(updated.getUserId(), updated.getEmail(), updated.getVersion()));
+            assertTrue(events.stream().anyMatch(event -> event.getType() == UserEventDTO.Type.DELETED
+                    && ids.get(5).equals(event.getUserId())));
+            //Каждое событие пришло из шарда своего пользователя, outbox шардов после переноса пусты
+            for (Map<String, Object> row : jdbc(shards.get(0))
+                    .queryForList("select user_id, outbox_shard from user_events")) {
+                assertEquals(ShardedUserRepository.shardOf((Long) row.get("USER_ID"), shards.size()),
+                        row.get("OUTBOX_SHARD"));
+            }
+            for (String shard : shards) {
+                assertEquals(0, jdbc(shard).queryForObject("select count(*) from user_outbox", Long.class));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("rebalance - users move to their new shard after a shard is added")
+    void rebalanceAfterAddingShard() {
+        List<String> shards = shardUrls("sharding-rebalance", 3);
+        List<Long> ids;
+        try (ConfigurableApplicationContext context = start(shards.subList(0, 2), Map.of())) {
+            ids = createUsers(context.getBean(UserService.class));
+        }
+
+        try (ConfigurableApplicationContext context = start(shards, Map.of("users.sharding.rebalance", "true",
+                "users.sharding.rebalance-batch-size", "4"))) {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                List<Long> stored = jdbc(shards.get(shard)).queryForList("select id from users", Long.class);
+                assertFalse(stored.isEmpty());
+                for (long id : stored) {
+                    assertEquals(shard, ShardedUserRepository.shardOf(id, shards.size()));
+                }
+            }
+            //Пользователи либо остаются в прежнем шарде, либо переходят в новый
+            for (long id : ids) {
+                int shard = ShardedUserRepository.shardOf(id, 3);
+                assertTrue(shard == 2 || shard == ShardedUserRepository.shardOf(id, 2));
+            }
+            UserService userService = context.getBean(UserService.class);
+            assertEquals(ids, userService.getAllUsers().stream().map(UserResponseDTO::getId).toList());
+            assertEquals(0, context.getBean(ShardedUserRepository.class).rebalance(100));
+        }
+    }
+
+    private static List<Long> createUsers(UserService userService) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            ids.add(userService.createUser(new UserRequestDTO("user" + i, "user" + i + "@example.com", 20 + i)).getId());
+        }
+        return ids;
+    }
+
+    private static List<String> shardUrls(String name, int count) {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            urls.add(TestInstances.h2Url(name + "-" + i));
+        }
+        return urls;
+    }
+
+    private static ConfigurableApplicationContext start(List<String> shards, Map<String, Object> properties) {
+        Map<String, Object> all = new HashMap<>(properties);
+        all.put("users.sharding.urls", String.join(",", shards));
+        return TestInstances.start(shards.get(0), all);
+    }
+
+    private static JdbcTemplate jdbc(String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    }
+}
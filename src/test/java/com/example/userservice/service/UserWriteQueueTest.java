@@ -0,0 +1,166 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserRequestDTO;
+import com.example.userservice.dto.UserResponseDTO;
+import com.example.userservice.exception.UserAlreadyExistsException;
+import com.example.userservice.exception.UserWriteQueueFullException;
+import com.example.userservice.util.TestInstances;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UserWriteQueueTest {
+    @Test
+    @DisplayName("createUser - concurrent signups are coalesced into batches and get their ids")
+    void concurrentSignupsAreBatched() throws Exception {
+        int users = 40;
+        try (ConfigurableApplicationContext context = TestInstances.start(TestInstances.h2Url("write-behind"),
+                Map.of("users.write-behind.enabled", "true", "users.write-behind.max-delay", "50ms"));
+             ExecutorService clients = Executors.newFixedThreadPool(users)) {
+            UserService userService = context.getBean(UserService.class);
+
+            List<Future<UserResponseDTO>> results = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                UserRequestDTO request = new UserRequestDTO("user" + i, "user" + i + "@example.com", 30);
+                results.add(clients.submit(() -> userService.createUser(request)));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<UserResponseDTO> result : results) {
+                UserResponseDTO created = result.get();
+                ids.add(created.getId());
+                assertEquals(created, userService.getUserById(created.getId()).orElseThrow());
+            }
+
+            assertEquals(users, ids.size());
+            long batches = context.getBean(MeterRegistry.class).summary("users.write-behind.batch.size").count();
+            assertTrue(batches < users, "expected coalesced batches, got " + batches);
+        }
+    }
+
+    @Test
+    @DisplayName("createUser - taken name or email is reported per field")
+    void duplicateIsRejected() {
+        try (ConfigurableApplicationContext context = TestInstances.start(
+                TestInstances.h2Url("write-behind-duplicates"), Map.of("users.write-behind.enabled", "true"))) {
+            UserService userService = context.getBean(UserService.class);
+            userService.createUser(new UserRequestDTO("Alice", "alice@example.com", 25));
+
+            UserAlreadyExistsException e = assertThrows(UserAlreadyExistsException.class,
+                    () -> userService.createUser(new UserRequestDTO("Alice", "alice2@example.com", 25)));
+            assertEquals(Map.of("name", UserBatchWriter.NAME_TAKEN), e.getErrors());
+        }
+    }
+
+    @Test
+    @DisplayName("submit - full queue is rejected immediately")
+    void fullQueueIsRejected() throws Exception {
+        UserBatchWriter batchWriter = mock(UserBatchWriter.class);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(batchWriter.insertAll(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            List<UserRequestDTO> requests = invocation.getArgument(0);
+            return requests.stream()
+                    .map(request -> UserWriteOutcome.created(new UserResponseDTO(1L, request.getName(),
+                            request.getEmail(), request.getAge(), null)))
+                    .toList();
+        });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserWriteQueue queue = new UserWriteQueue(batchWriter, meterRegistry, 1, 1, Duration.ZERO);
+        queue.start();
+        try {
+            //Первый запрос забран писателем и ждёт вставки, второй занимает единственное место в очереди
+            CompletableFuture<UserWriteOutcome> first = CompletableFuture.supplyAsync(
+                    () -> queue.submit(new UserRequestDTO("Alice", "alice@example.com", 25)));
+            writing.await();
+            CompletableFuture<UserWriteOutcome> second = CompletableFuture.supplyAsync(
+                    () -> queue.submit(new UserRequestDTO("Bob", "bob@example.com", 30)));
+            while (meterRegistry.get("users.write-behind.queue.size").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertThrows(UserWriteQueueFullException.class,
+                    () -> queue.submit(new UserRequestDTO("Carol", "carol@example.com", 41)));
+
+            release.countDown();
+            assertEquals("Alice", first.get().user().getName());
+            assertEquals("Bob", second.get().user().getName());
+        } finally {
+            release.countDown();
+            queue.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("submit - an Error in the batch writer fails that batch and the writer keeps running")
+    void errorDoesNotStopWriter() throws Exception {
+        UserBatchWriter batchWriter = mock(UserBatchWriter.class);
+        when(batchWriter.insertAll(anyList()))
+                .thenThrow(new OutOfMemoryError("test"))
+                .thenAnswer(invocation -> created(invocation.getArgument(0)));
+        UserWriteQueue queue = new UserWriteQueue(batchWriter, new SimpleMeterRegistry(), 10, 1, Duration.ZERO);
+        queue.start();
+        try {
+            assertThrows(OutOfMemoryError.class,
+                    () -> queue.submit(new UserRequestDTO("Alice", "alice@example.com", 25)));
+            assertEquals("Bob", queue.submit(new UserRequestDTO("Bob", "bob@example.com", 30)).user().getName());
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("submit - requests racing with stop() are either written or rejected, never left waiting")
+    void stopDoesNotStrandRequests() throws Exception {
+        UserBatchWriter batchWriter = mock(UserBatchWriter.class);
+        when(batchWriter.insertAll(anyList())).thenAnswer(invocation -> created(invocation.getArgument(0)));
+        for (int round = 0; round < 20; round++) {
+            UserWriteQueue queue = new UserWriteQueue(batchWriter, new SimpleMeterRegistry(), 1000, 10,
+                    Duration.ZERO);
+            queue.start();
+            List<CompletableFuture<Void>> clients = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                clients.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        while (true) {
+                            queue.submit(new UserRequestDTO("Alice", "alice@example.com", 25));
+                        }
+                    } catch (IllegalStateException e) {
+                        //Очередь остановлена
+                    }
+                }));
+            }
+            Thread.sleep(5);
+            queue.stop();
+            CompletableFuture.allOf(clients.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static List<UserWriteOutcome> created(List<UserRequestDTO> requests) {
+        return requests.stream()
+                .map(request -> UserWriteOutcome.created(new UserResponseDTO(1L, request.getName(),
+                        request.getEmail(), request.getAge(), null)))
+                .toList();
+    }
+}
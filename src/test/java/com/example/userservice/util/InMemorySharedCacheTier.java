@@ -0,0 +1,53 @@
+package com.example.userservice.util;
+
+import com.example.userservice.config.SharedCacheTier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Общий уровень кэша внутри тестовой JVM вместо Redis: один объект передаётся всем запущенным экземплярам
+public class InMemorySharedCacheTier implements SharedCacheTier {
+    private record Entry(byte[] value, long expiresAt) {}
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+
+    @Override
+    public byte[] get(String cacheName, String key) {
+        byte[] value = find(cacheName, key);
+        if (value != null) {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    @Override
+    public void put(String cacheName, String key, byte[] value, Duration timeToLive) {
+        entries.put(cacheName + ":" + key, new Entry(value, System.nanoTime() + timeToLive.toNanos()));
+    }
+
+    @Override
+    public void evict(String cacheName, String key) {
+        entries.remove(cacheName + ":" + key);
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        entries.keySet().removeIf(key -> key.startsWith(cacheName + ":"));
+    }
+
+    public boolean contains(String cacheName, Object key) {
+        return find(cacheName, key.toString()) != null;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    private byte[] find(String cacheName, String key) {
+        Entry entry = entries.get(cacheName + ":" + key);
+        return entry == null || entry.expiresAt() - System.nanoTime() < 0 ? null : entry.value();
+    }
+}
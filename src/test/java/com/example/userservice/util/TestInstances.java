@@ -0,0 +1,32 @@
+package com.example.userservice.util;
+
+import com.example.userservice.Main;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//Запуск полноценного экземпляра приложения поверх встроенной базы H2 внутри тестовой JVM
+public class TestInstances {
+    public static String h2Url(String databaseName) {
+        return "jdbc:h2:mem:" + databaseName + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    }
+
+    public static ConfigurableApplicationContext start(String databaseUrl, Map<String, Object> properties,
+                                                       Class<?>... extraSources) {
+        Map<String, Object> defaults = new HashMap<>();
+        defaults.put("spring.datasource.url", databaseUrl);
+        defaults.put("spring.datasource.username", "sa");
+        defaults.put("spring.datasource.password", "");
+        defaults.put("spring.jpa.hibernate.ddl-auto", "validate");
+        defaults.put("spring.flyway.locations", "classpath:db/migration/{vendor}");
+        defaults.put("spring.main.web-application-type", "none");
+        defaults.put("spring.main.banner-mode", "off");
+        defaults.putAll(properties);
+        return new SpringApplicationBuilder(Main.class)
+                .sources(extraSources)
+                .properties(defaults)
+                .run();
+    }
+}